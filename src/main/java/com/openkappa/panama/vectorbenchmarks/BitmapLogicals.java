@@ -1,12 +1,16 @@
 package com.openkappa.panama.vectorbenchmarks;
 
 import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
+import java.util.Arrays;
+import java.util.SplittableRandom;
 import java.util.concurrent.TimeUnit;
 
 import static com.openkappa.panama.vectorbenchmarks.Util.I256;
+import static com.openkappa.panama.vectorbenchmarks.Util.L256;
 import static com.openkappa.panama.vectorbenchmarks.Util.newIntBitmap;
 import static jdk.incubator.vector.VectorOperators.XOR;
 
@@ -16,6 +20,34 @@ import static jdk.incubator.vector.VectorOperators.XOR;
 @Fork(value = 1, jvmArgsPrepend = {"--add-modules=jdk.incubator.vector"})
 public class BitmapLogicals {
 
+  public static void main(String... args) {
+    SplittableRandom random = new SplittableRandom(0);
+    for (int size : new int[] {0, 1, 32, 37, 2048, 2077, 131072}) {
+      for (int terms : new int[] {1, 2, 3, 10, 50}) {
+        int[][] bitmaps = new int[terms][];
+        for (int i = 0; i < terms; ++i) {
+          // denser operands so the intersection of many terms is not always empty
+          bitmaps[i] = newIntBitmap(size);
+          for (int j = 0; j < size; ++j) {
+            bitmaps[i][j] |= random.nextInt() | random.nextInt() | random.nextInt();
+          }
+        }
+        int[] fused = new int[size];
+        int[] pairwise = new int[size];
+        intersectAll(bitmaps, fused);
+        intersectPairwise(bitmaps, pairwise);
+        if (!Arrays.equals(fused, pairwise) || intersectAllCardinality(bitmaps) != cardinality(pairwise)) {
+          throw new IllegalStateException("intersection failed: size=" + size + ", terms=" + terms);
+        }
+        unionAll(bitmaps, fused);
+        unionPairwise(bitmaps, pairwise);
+        if (!Arrays.equals(fused, pairwise) || unionAllCardinality(bitmaps) != cardinality(pairwise)) {
+          throw new IllegalStateException("union failed: size=" + size + ", terms=" + terms);
+        }
+      }
+    }
+    System.out.println("ok");
+  }
 
   @Param({"2048", "131072"})
   int size;
@@ -95,4 +127,193 @@ public class BitmapLogicals {
     }
     bh.consume(result);
   }
+
+  @State(Scope.Benchmark)
+  public static class TermsState {
+
+    @Param({"10", "50"})
+    int terms;
+
+    int[][] bitmaps;
+    int[] result;
+
+    @Setup(Level.Trial)
+    public void init(BitmapLogicals logicals) {
+      bitmaps = new int[terms][];
+      for (int i = 0; i < terms; ++i) {
+        bitmaps[i] = newIntBitmap(logicals.size);
+      }
+      result = new int[logicals.size];
+    }
+  }
+
+  @Benchmark
+  public void intersectPairwise(TermsState state, Blackhole bh) {
+    intersectPairwise(state.bitmaps, state.result);
+    bh.consume(state.result);
+  }
+
+  @Benchmark
+  public void intersectFused(TermsState state, Blackhole bh) {
+    intersectAll(state.bitmaps, state.result);
+    bh.consume(state.result);
+  }
+
+  @Benchmark
+  public int intersectPairwiseCardinality(TermsState state) {
+    intersectPairwise(state.bitmaps, state.result);
+    return cardinality(state.result);
+  }
+
+  @Benchmark
+  public int intersectFusedCardinality(TermsState state) {
+    return intersectAllCardinality(state.bitmaps);
+  }
+
+  @Benchmark
+  public void unionPairwise(TermsState state, Blackhole bh) {
+    unionPairwise(state.bitmaps, state.result);
+    bh.consume(state.result);
+  }
+
+  @Benchmark
+  public void unionFused(TermsState state, Blackhole bh) {
+    unionAll(state.bitmaps, state.result);
+    bh.consume(state.result);
+  }
+
+  @Benchmark
+  public int unionPairwiseCardinality(TermsState state) {
+    unionPairwise(state.bitmaps, state.result);
+    return cardinality(state.result);
+  }
+
+  @Benchmark
+  public int unionFusedCardinality(TermsState state) {
+    return unionAllCardinality(state.bitmaps);
+  }
+
+  /**
+   * Intersects all the bitmaps four vectors at a time, keeping the intersections in registers
+   * while every operand is read, so each block of the result is written once rather than once
+   * per operand. Any ints past the last multiple of 32 are intersected one at a time.
+   */
+  static void intersectAll(int[][] bitmaps, int[] result) {
+    fuse(bitmaps, result, true);
+  }
+
+  /**
+   * Counts the intersection of all the bitmaps without writing it anywhere.
+   */
+  static int intersectAllCardinality(int[][] bitmaps) {
+    return fuse(bitmaps, null, true);
+  }
+
+  /**
+   * Unions all the bitmaps in the same way as intersectAll.
+   */
+  static void unionAll(int[][] bitmaps, int[] result) {
+    fuse(bitmaps, result, false);
+  }
+
+  /**
+   * Counts the union of all the bitmaps without writing it anywhere.
+   */
+  static int unionAllCardinality(int[][] bitmaps) {
+    return fuse(bitmaps, null, false);
+  }
+
+  /**
+   * Combines all the bitmaps with AND when intersect is set and OR otherwise, and either writes
+   * the result or, when there is nowhere to write it, counts its bits. Both flags are the same
+   * for the whole call, so C2 unswitches the loops on them and each caller gets its own kernel.
+   */
+  private static int fuse(int[][] bitmaps, int[] result, boolean intersect) {
+    int lanes = I256.length();
+    int[] first = bitmaps[0];
+    int cardinality = 0;
+    int i = 0;
+    for (; i + 4 * lanes <= first.length; i += 4 * lanes) {
+      var block1 = IntVector.fromArray(I256, first, i);
+      var block2 = IntVector.fromArray(I256, first, i + lanes);
+      var block3 = IntVector.fromArray(I256, first, i + 2 * lanes);
+      var block4 = IntVector.fromArray(I256, first, i + 3 * lanes);
+      for (int j = 1; j < bitmaps.length; ++j) {
+        int[] bitmap = bitmaps[j];
+        block1 = combine(block1, IntVector.fromArray(I256, bitmap, i), intersect);
+        block2 = combine(block2, IntVector.fromArray(I256, bitmap, i + lanes), intersect);
+        block3 = combine(block3, IntVector.fromArray(I256, bitmap, i + 2 * lanes), intersect);
+        block4 = combine(block4, IntVector.fromArray(I256, bitmap, i + 3 * lanes), intersect);
+      }
+      if (result == null) {
+        cardinality += bitCount(block1.reinterpretAsLongs())
+                + bitCount(block2.reinterpretAsLongs())
+                + bitCount(block3.reinterpretAsLongs())
+                + bitCount(block4.reinterpretAsLongs());
+      } else {
+        block1.intoArray(result, i);
+        block2.intoArray(result, i + lanes);
+        block3.intoArray(result, i + 2 * lanes);
+        block4.intoArray(result, i + 3 * lanes);
+      }
+    }
+    for (; i < first.length; ++i) {
+      int word = first[i];
+      for (int j = 1; j < bitmaps.length; ++j) {
+        word = intersect ? word & bitmaps[j][i] : word | bitmaps[j][i];
+      }
+      if (result == null) {
+        cardinality += Integer.bitCount(word);
+      } else {
+        result[i] = word;
+      }
+    }
+    return cardinality;
+  }
+
+  private static IntVector combine(IntVector accumulator, IntVector operand, boolean intersect) {
+    return intersect ? accumulator.and(operand) : accumulator.or(operand);
+  }
+
+  static void intersectPairwise(int[][] bitmaps, int[] result) {
+    System.arraycopy(bitmaps[0], 0, result, 0, result.length);
+    for (int j = 1; j < bitmaps.length; ++j) {
+      int i = 0;
+      for (; i < I256.loopBound(result.length); i += I256.length()) {
+        IntVector.fromArray(I256, result, i).and(IntVector.fromArray(I256, bitmaps[j], i)).intoArray(result, i);
+      }
+      for (; i < result.length; ++i) {
+        result[i] &= bitmaps[j][i];
+      }
+    }
+  }
+
+  static void unionPairwise(int[][] bitmaps, int[] result) {
+    System.arraycopy(bitmaps[0], 0, result, 0, result.length);
+    for (int j = 1; j < bitmaps.length; ++j) {
+      int i = 0;
+      for (; i < I256.loopBound(result.length); i += I256.length()) {
+        IntVector.fromArray(I256, result, i).or(IntVector.fromArray(I256, bitmaps[j], i)).intoArray(result, i);
+      }
+      for (; i < result.length; ++i) {
+        result[i] |= bitmaps[j][i];
+      }
+    }
+  }
+
+  static int cardinality(int[] bitmap) {
+    int cardinality = 0;
+    for (int word : bitmap) {
+      cardinality += Integer.bitCount(word);
+    }
+    return cardinality;
+  }
+
+  private static int bitCount(LongVector words) {
+    int bitCount = 0;
+    for (int i = 0; i < L256.length(); ++i) {
+      bitCount += Long.bitCount(words.lane(i));
+    }
+    return bitCount;
+  }
 }
@@ -0,0 +1,132 @@
+package com.openkappa.panama.vectorbenchmarks;
+
+import jdk.incubator.vector.IntVector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.openkappa.panama.vectorbenchmarks.Util.I256;
+
+/**
+ * Turns the set bits of a bitmap into their positions. Without a compress instruction, each byte
+ * looks up the positions of its bits, packed at the start of an 8 lane vector, adds the byte's
+ * offset and stores all 8 lanes, then moves the output along by its bit count, so the lanes past
+ * the byte's bits are overwritten by the next byte. Words with few bits skip the table and use
+ * the scalar loop, which would otherwise be faster at low densities.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsPrepend = {"--add-modules=jdk.incubator.vector"})
+public class BitmapPositions {
+
+  public static void main(String... args) {
+    SplittableRandom random = new SplittableRandom(0);
+    for (int words : new int[] {0, 1, 3, 1000}) {
+      for (double density : new double[] {0, 0.001, 0.01, 0.1, 0.5, 0.9, 1}) {
+        long[] bitmap = newBitmap(random, words, density);
+        int[] vector = new int[words * 64 + SLACK];
+        int[] scalar = new int[words * 64 + SLACK];
+        int count = decode(bitmap, vector);
+        if (count != scalarDecode(bitmap, scalar) || !Arrays.equals(vector, 0, count, scalar, 0, count)) {
+          throw new IllegalStateException("words=" + words + ", density=" + density);
+        }
+      }
+    }
+    System.out.println("ok");
+  }
+
+  // the output needs room for one whole vector past the last position
+  public static final int SLACK = 8;
+
+  // words with this many bits or fewer are cheaper to decode a bit at a time
+  private static final int SPARSE_WORD = 8;
+
+  // the positions of the set bits of each byte, padded to 8
+  private static final int[] BYTE_POSITIONS = new int[256 * 8];
+
+  static {
+    for (int b = 0; b < 256; ++b) {
+      int count = 0;
+      for (int bit = 0; bit < 8; ++bit) {
+        if ((b & (1 << bit)) != 0) {
+          BYTE_POSITIONS[b * 8 + count++] = bit;
+        }
+      }
+    }
+  }
+
+  @Param({"0.001", "0.01", "0.1", "0.5", "0.9"})
+  double density;
+
+  @Param("65536")
+  int words;
+
+  long[] bitmap;
+  int[] positions;
+
+  @Setup(Level.Trial)
+  public void init() {
+    bitmap = newBitmap(new SplittableRandom(0), words, density);
+    positions = new int[words * 64 + SLACK];
+  }
+
+  @Benchmark
+  public int vector() {
+    return decode(bitmap, positions);
+  }
+
+  @Benchmark
+  public int scalar() {
+    return scalarDecode(bitmap, positions);
+  }
+
+  /**
+   * Writes the positions of the set bits of the bitmap in increasing order, and returns how many
+   * there were. positions needs SLACK ints of room past the last position.
+   */
+  static int decode(long[] bitmap, int[] positions) {
+    int count = 0;
+    for (int i = 0; i < bitmap.length; ++i) {
+      long word = bitmap[i];
+      if (Long.bitCount(word) <= SPARSE_WORD) {
+        while (word != 0) {
+          positions[count++] = i * Long.SIZE + Long.numberOfTrailingZeros(word);
+          word &= word - 1;
+        }
+        continue;
+      }
+      int offset = i * Long.SIZE;
+      for (int b = 0; b < Long.BYTES; ++b, offset += 8) {
+        int bits = (int) (word >>> (b * 8)) & 0xFF;
+        IntVector.fromArray(I256, BYTE_POSITIONS, bits * 8).add(offset).intoArray(positions, count);
+        count += Integer.bitCount(bits);
+      }
+    }
+    return count;
+  }
+
+  static int scalarDecode(long[] bitmap, int[] positions) {
+    int count = 0;
+    for (int i = 0; i < bitmap.length; ++i) {
+      long word = bitmap[i];
+      while (word != 0) {
+        positions[count++] = i * Long.SIZE + Long.numberOfTrailingZeros(word);
+        word &= word - 1;
+      }
+    }
+    return count;
+  }
+
+  private static long[] newBitmap(SplittableRandom random, int words, double density) {
+    long[] bitmap = new long[words];
+    for (int i = 0; i < words * Long.SIZE; ++i) {
+      if (random.nextDouble() < density) {
+        bitmap[i >>> 6] |= 1L << i;
+      }
+    }
+    return bitmap;
+  }
+}
@@ -2,18 +2,32 @@ package com.openkappa.panama.vectorbenchmarks;
 
 import jdk.incubator.vector.ByteVector;
 import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
 import org.openjdk.jmh.annotations.*;
 
 import javax.print.DocFlavor;
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.openkappa.panama.vectorbenchmarks.Util.B256;
 import static com.openkappa.panama.vectorbenchmarks.Util.L256;
+import static jdk.incubator.vector.VectorOperators.LSHR;
+import static jdk.incubator.vector.VectorOperators.NE;
 
 @OutputTimeUnit(TimeUnit.MICROSECONDS)
 @Fork(value = 1, jvmArgsPrepend = {
@@ -31,6 +45,78 @@ public class ByteSearch {
         System.out.println(bs.vector(state));
         System.out.println(bs.scan(state));
         System.out.println(bs.swar(state));
+        SplittableRandom random = new SplittableRandom(0);
+        for (int size : new int[] {1, 31, 32, 33, 100, 1024, 4096}) {
+            for (int needleLength : new int[] {1, 2, 3, 4, 16, 40}) {
+                for (int trial = 0; trial < 100; ++trial) {
+                    byte[] haystack = newText(random, size);
+                    byte[] needle = newText(random, needleLength);
+                    if (trial % 2 == 0 && needleLength <= size) {
+                        int from = random.nextInt(size - needleLength + 1);
+                        System.arraycopy(haystack, from, needle, 0, needleLength);
+                    }
+                    int expected = naiveIndexOf(haystack, needle);
+                    if (indexOf(haystack, needle) != expected) {
+                        throw new IllegalStateException("memmem failed: size=" + size + ", needleLength=" + needleLength);
+                    }
+                }
+            }
+        }
+        for (int size : new int[] {0, 1, 31, 32, 33, 100, 1024, 4096}) {
+            for (int lineLength : new int[] {1, 2, 16, 80}) {
+                LinesState lines = new LinesState();
+                lines.size = size;
+                lines.lineLength = lineLength;
+                lines.init();
+                int count = indexAll(lines.data, (byte) '\n', lines.positions);
+                int[] expected = new int[size];
+                if (count != scalarIndexAll(lines.data, (byte) '\n', expected)
+                        || !Arrays.equals(lines.positions, 0, count, expected, 0, count)) {
+                    throw new IllegalStateException("indexAll failed: size=" + size + ", lineLength=" + lineLength);
+                }
+            }
+        }
+        for (String set : new String[] {"csv", "whitespace", "punctuation"}) {
+            for (int size : new int[] {1, 31, 32, 33, 100, 1024}) {
+                ByteSetState sets = new ByteSetState();
+                sets.set = set;
+                sets.size = size;
+                for (int trial = 0; trial < 100; ++trial) {
+                    sets.init();
+                    sets.data[random.nextInt(size)] = (byte) random.nextInt();
+                    int expected = scalarIndexOfAny(sets.data, sets.byteSet);
+                    if (indexOfAny(sets.data, sets.byteSet) != expected
+                            || chainedIndexOfAny(sets.data, sets.values) != expected) {
+                        throw new IllegalStateException("indexOfAny failed: set=" + set + ", size=" + size);
+                    }
+                }
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        for (int size : new int[] {1, 100, PARALLEL_CHUNK_SIZE - 1, PARALLEL_CHUNK_SIZE * 3 + 17}) {
+            LargeBufferState large = new LargeBufferState();
+            ByteBuffer data = ByteBuffer.allocateDirect(size);
+            large.fill(data, size);
+            byte[] heap = new byte[size];
+            data.get(0, heap);
+            int[] expected = new int[size];
+            int count = scalarIndexAll(heap, (byte) '\n', expected);
+            if (!Arrays.equals(expected, 0, count, indexAll(data, 0, size, (byte) '\n'), 0, count)
+                    || !Arrays.equals(expected, 0, count, parallelIndexAll(pool, data, (byte) '\n'), 0, count)) {
+                throw new IllegalStateException("parallel indexAll failed: size=" + size);
+            }
+            for (byte value : new byte[] {'\n', 'q', 0}) {
+                int first = -1;
+                for (int i = 0; i < size && first < 0; ++i) {
+                    first = heap[i] == value ? i : -1;
+                }
+                if (indexOf(data, 0, size, value) != first || parallelIndexOf(pool, data, value) != first) {
+                    throw new IllegalStateException("parallel indexOf failed: size=" + size + ", value=" + value);
+                }
+            }
+        }
+        pool.shutdown();
+        System.out.println("ok");
     }
 
     private static final VarHandle TO_LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
@@ -75,6 +161,183 @@ public class ByteSearch {
         }
     }
 
+    @State(Scope.Benchmark)
+    public static class NeedleState {
+
+        @Param({"1024", "16384", "131072", "1048576"})
+        int size;
+
+        @Param({"4", "16"})
+        int needleLength;
+
+        byte[] haystack;
+        byte[] needle;
+        String haystackString;
+        String needleString;
+
+        @Setup(Level.Trial)
+        public void init() {
+            SplittableRandom random = new SplittableRandom(0);
+            haystack = newText(random, size);
+            needle = newText(random, needleLength);
+            // the needle is found near the end, unless it happens to occur earlier
+            System.arraycopy(needle, 0, haystack, size - needleLength - random.nextInt(8), needleLength);
+            haystackString = new String(haystack, StandardCharsets.ISO_8859_1);
+            needleString = new String(needle, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class LinesState {
+
+        @Param({"4096", "1048576", "16777216"})
+        int size;
+
+        @Param({"16", "80", "1024"})
+        int lineLength;
+
+        byte[] data;
+        int[] positions;
+
+        @Setup(Level.Trial)
+        public void init() {
+            SplittableRandom random = new SplittableRandom(0);
+            data = newText(random, size);
+            // newlines at geometrically distributed intervals averaging lineLength
+            for (int i = 0; i < size; ++i) {
+                if (random.nextInt(lineLength) == 0) {
+                    data[i] = '\n';
+                }
+            }
+            positions = new int[size];
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ByteSetState {
+
+        @Param({"csv", "whitespace", "punctuation"})
+        String set;
+
+        @Param({"1024", "65536", "1048576"})
+        int size;
+
+        byte[] values;
+        ByteSet byteSet;
+        byte[] data;
+
+        @Setup(Level.Trial)
+        public void init() {
+            switch (set) {
+                case "csv": values = new byte[] {',', '"', '\n', '\r'}; break;
+                case "whitespace": values = new byte[] {' ', '\t', '\n', '\r', '\f', 0x0B}; break;
+                default: values = "!\"#$%&'()*+,-./:".getBytes(StandardCharsets.US_ASCII); break;
+            }
+            byteSet = new ByteSet(values);
+            SplittableRandom random = new SplittableRandom(0);
+            data = new byte[size];
+            for (int i = 0; i < size; ++i) {
+                data[i] = (byte) random.nextInt('0', 'z' + 1);
+                if (byteSet.contains(data[i])) {
+                    data[i] = 'a';
+                }
+            }
+            // every member is present near the end, so chained searches read almost everything
+            for (int i = 0; i < values.length && i < size; ++i) {
+                data[size - 1 - i] = values[i];
+            }
+        }
+    }
+
+    /**
+     * Up to 16 byte values, split into two halves of 8. A byte is the j-th value of a half if bit j
+     * is set in both that half's entry for its low nibble and its entry for its high nibble.
+     */
+    static final class ByteSet {
+
+        final byte[][] low;
+        final byte[][] high;
+        private final boolean[] members = new boolean[256];
+
+        ByteSet(byte... values) {
+            if (values.length > 16) {
+                throw new IllegalArgumentException("at most 16 values are supported");
+            }
+            int halves = values.length > 8 ? 2 : 1;
+            // only the first 16 lanes are looked up
+            low = new byte[halves][32];
+            high = new byte[halves][32];
+            for (int j = 0; j < values.length; ++j) {
+                low[j >>> 3][values[j] & 0xF] |= 1 << (j & 7);
+                high[j >>> 3][(values[j] >>> 4) & 0xF] |= 1 << (j & 7);
+                members[values[j] & 0xFF] = true;
+            }
+        }
+
+        boolean contains(byte value) {
+            return members[value & 0xFF];
+        }
+    }
+
+    private static final int PARALLEL_CHUNK_SIZE = 1 << 20;
+
+    @State(Scope.Benchmark)
+    public static class LargeBufferState {
+
+        @Param({"16777216", "268435456", "1073741824"})
+        int size;
+
+        @Param({"direct", "mapped"})
+        String source;
+
+        @Param({"1", "2", "4", "8"})
+        int threads;
+
+        ForkJoinPool pool;
+        Path file;
+        FileChannel channel;
+        ByteBuffer data;
+
+        @Setup(Level.Trial)
+        public void init() throws IOException {
+            pool = new ForkJoinPool(threads);
+            if ("mapped".equals(source)) {
+                file = Files.createTempFile("bytesearch", ".bin");
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                data = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } else {
+                data = ByteBuffer.allocateDirect(size);
+            }
+            fill(data, size);
+        }
+
+        /**
+         * Lines of text averaging 80 bytes, and a single zero at the very end.
+         */
+        void fill(ByteBuffer data, int size) {
+            byte[] text = newText(new SplittableRandom(0), Math.min(size, PARALLEL_CHUNK_SIZE));
+            SplittableRandom random = new SplittableRandom(1);
+            for (int i = 0; i < text.length; ++i) {
+                if (random.nextInt(80) == 0) {
+                    text[i] = '\n';
+                }
+            }
+            for (int offset = 0; offset < size; offset += text.length) {
+                data.put(offset, text, 0, Math.min(text.length, size - offset));
+            }
+            data.put(size - 1, (byte) 0);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            pool.shutdown();
+            if (channel != null) {
+                channel.close();
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
     @Benchmark
     public int vector(FindByteState state) {
         var data = state.getData();
@@ -145,6 +408,346 @@ public class ByteSearch {
         return -1;
     }
 
+    @Benchmark
+    public int memmemVector(NeedleState state) {
+        return indexOf(state.haystack, state.needle);
+    }
+
+    @Benchmark
+    public int memmemNaive(NeedleState state) {
+        return naiveIndexOf(state.haystack, state.needle);
+    }
+
+    @Benchmark
+    public int memmemString(NeedleState state) {
+        return state.haystackString.indexOf(state.needleString);
+    }
+
+    /**
+     * Compares the first and last bytes of the needle against 32 candidate positions at once
+     * and only verifies the whole needle where both match.
+     */
+    static int indexOf(byte[] haystack, byte[] needle) {
+        int k = needle.length;
+        if (k == 0) {
+            return 0;
+        }
+        var first = ByteVector.broadcast(B256, needle[0]);
+        var last = ByteVector.broadcast(B256, needle[k - 1]);
+        int offset = 0;
+        while (offset + k - 1 + B256.length() <= haystack.length) {
+            var matches = ByteVector.fromArray(B256, haystack, offset).eq(first)
+                    .and(ByteVector.fromArray(B256, haystack, offset + k - 1).eq(last));
+            // most blocks have no candidates, and extracting the mask is much slower than testing it
+            long candidates = matches.anyTrue() ? toBits(matches) : 0L;
+            while (candidates != 0) {
+                int position = offset + Long.numberOfTrailingZeros(candidates);
+                if (Arrays.mismatch(haystack, position, position + k, needle, 0, k) < 0) {
+                    return position;
+                }
+                candidates &= candidates - 1;
+            }
+            offset += B256.length();
+        }
+        // post loop
+        for (; offset + k <= haystack.length; ++offset) {
+            if (haystack[offset] == needle[0] && Arrays.mismatch(haystack, offset, offset + k, needle, 0, k) < 0) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    static int naiveIndexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i + needle.length <= haystack.length; ++i) {
+            for (int j = 0; j < needle.length; ++j) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    @Benchmark
+    public int indexAllVector(LinesState state) {
+        return indexAll(state.data, (byte) '\n', state.positions);
+    }
+
+    @Benchmark
+    public int indexAllScalar(LinesState state) {
+        return scalarIndexAll(state.data, (byte) '\n', state.positions);
+    }
+
+    /**
+     * Writes the offset of every occurrence of value into positions, which must have room
+     * for data.length offsets, and returns how many there were.
+     */
+    static int indexAll(byte[] data, byte value, int[] positions) {
+        var needle = ByteVector.broadcast(B256, value);
+        int count = 0;
+        int offset = 0;
+        for (; offset + B256.length() <= data.length; offset += B256.length()) {
+            var matches = ByteVector.fromArray(B256, data, offset).eq(needle);
+            if (matches.anyTrue()) {
+                long bits = toBits(matches);
+                while (bits != 0) {
+                    positions[count++] = offset + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                }
+            }
+        }
+        // post loop
+        for (; offset < data.length; ++offset) {
+            if (data[offset] == value) {
+                positions[count++] = offset;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * One bit per lane of a B256 mask, lowest lane first. Byte masks are blended to 0 or 1 and
+     * each long's low bits gathered with a multiply, since VectorMask.toLong is not intrinsic
+     * for byte masks on JDK 17.
+     */
+    static long toBits(VectorMask<Byte> mask) {
+        var words = ByteVector.zero(B256).blend((byte) 1, mask).reinterpretAsLongs();
+        long bits = 0;
+        for (int i = 0; i < 4; ++i) {
+            bits |= ((words.lane(i) * 0x0102040810204080L) >>> 56) << (i * Long.BYTES);
+        }
+        return bits;
+    }
+
+    static int scalarIndexAll(byte[] data, byte value, int[] positions) {
+        int count = 0;
+        for (int i = 0; i < data.length; ++i) {
+            if (data[i] == value) {
+                positions[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int indexOfAnyVector(ByteSetState state) {
+        return indexOfAny(state.data, state.byteSet);
+    }
+
+    @Benchmark
+    public int indexOfAnyChained(ByteSetState state) {
+        return chainedIndexOfAny(state.data, state.values);
+    }
+
+    @Benchmark
+    public int indexOfAnyScalar(ByteSetState state) {
+        return scalarIndexOfAny(state.data, state.byteSet);
+    }
+
+    /**
+     * Finds the first byte in the set by looking up both nibbles of 32 bytes at a time.
+     */
+    static int indexOfAny(byte[] data, ByteSet set) {
+        boolean twoHalves = set.low.length == 2;
+        var low0 = ByteVector.fromArray(B256, set.low[0], 0);
+        var high0 = ByteVector.fromArray(B256, set.high[0], 0);
+        var low1 = twoHalves ? ByteVector.fromArray(B256, set.low[1], 0) : low0;
+        var high1 = twoHalves ? ByteVector.fromArray(B256, set.high[1], 0) : high0;
+        int offset = 0;
+        for (; offset + B256.length() <= data.length; offset += B256.length()) {
+            var input = ByteVector.fromArray(B256, data, offset);
+            var lowNibbles = input.and((byte) 0x0F).toShuffle();
+            var highNibbles = input.lanewise(LSHR, 4).toShuffle();
+            var classes = low0.rearrange(lowNibbles).and(high0.rearrange(highNibbles));
+            if (twoHalves) {
+                classes = classes.or(low1.rearrange(lowNibbles).and(high1.rearrange(highNibbles)));
+            }
+            var matches = classes.compare(NE, 0);
+            if (matches.anyTrue()) {
+                return offset + Long.numberOfTrailingZeros(toBits(matches));
+            }
+        }
+        // post loop
+        for (; offset < data.length; ++offset) {
+            if (set.contains(data[offset])) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Searches for each value in turn, only as far as the best match so far.
+     */
+    static int chainedIndexOfAny(byte[] data, byte[] values) {
+        int first = data.length;
+        for (byte value : values) {
+            var needle = ByteVector.broadcast(B256, value);
+            int offset = 0;
+            for (; offset + B256.length() <= first; offset += B256.length()) {
+                var matches = ByteVector.fromArray(B256, data, offset).eq(needle);
+                if (matches.anyTrue()) {
+                    first = offset + Long.numberOfTrailingZeros(toBits(matches));
+                    break;
+                }
+            }
+            for (; offset < first; ++offset) {
+                if (data[offset] == value) {
+                    first = offset;
+                    break;
+                }
+            }
+        }
+        return first == data.length ? -1 : first;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int firstSequential(LargeBufferState state) {
+        return indexOf(state.data, 0, state.size, (byte) 0);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int firstParallel(LargeBufferState state) {
+        return parallelIndexOf(state.pool, state.data, (byte) 0);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int[] allSequential(LargeBufferState state) {
+        return indexAll(state.data, 0, state.size, (byte) '\n');
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int[] allParallel(LargeBufferState state) {
+        return parallelIndexAll(state.pool, state.data, (byte) '\n');
+    }
+
+    static int indexOf(ByteBuffer data, int from, int to, byte value) {
+        var needle = ByteVector.broadcast(B256, value);
+        int offset = from;
+        for (; offset + B256.length() <= to; offset += B256.length()) {
+            var matches = ByteVector.fromByteBuffer(B256, data, offset, ByteOrder.LITTLE_ENDIAN).eq(needle);
+            if (matches.anyTrue()) {
+                return offset + Long.numberOfTrailingZeros(toBits(matches));
+            }
+        }
+        // post loop
+        for (; offset < to; ++offset) {
+            if (data.get(offset) == value) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    static int[] indexAll(ByteBuffer data, int from, int to, byte value) {
+        var needle = ByteVector.broadcast(B256, value);
+        int[] positions = new int[64];
+        int count = 0;
+        int offset = from;
+        for (; offset + B256.length() <= to; offset += B256.length()) {
+            var matches = ByteVector.fromByteBuffer(B256, data, offset, ByteOrder.LITTLE_ENDIAN).eq(needle);
+            if (matches.anyTrue()) {
+                if (count + B256.length() > positions.length) {
+                    positions = Arrays.copyOf(positions, positions.length * 2);
+                }
+                long bits = toBits(matches);
+                while (bits != 0) {
+                    positions[count++] = offset + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                }
+            }
+        }
+        // post loop
+        for (; offset < to; ++offset) {
+            if (data.get(offset) == value) {
+                if (count == positions.length) {
+                    positions = Arrays.copyOf(positions, positions.length * 2);
+                }
+                positions[count++] = offset;
+            }
+        }
+        return Arrays.copyOf(positions, count);
+    }
+
+    /**
+     * Searches chunks in parallel, skipping any chunk after the first match found so far.
+     */
+    static int parallelIndexOf(ForkJoinPool pool, ByteBuffer data, byte value) {
+        int size = data.limit();
+        var first = new AtomicInteger(Integer.MAX_VALUE);
+        var tasks = new ArrayList<ForkJoinTask<?>>();
+        for (int from = 0; from < size; from += PARALLEL_CHUNK_SIZE) {
+            int start = from;
+            tasks.add(pool.submit(() -> {
+                if (start < first.get()) {
+                    int found = indexOf(data, start, Math.min(start + PARALLEL_CHUNK_SIZE, size), value);
+                    if (found >= 0) {
+                        first.accumulateAndGet(found, Math::min);
+                    }
+                }
+            }));
+        }
+        for (var task : tasks) {
+            task.join();
+        }
+        return first.get() == Integer.MAX_VALUE ? -1 : first.get();
+    }
+
+    static int[] parallelIndexAll(ForkJoinPool pool, ByteBuffer data, byte value) {
+        int size = data.limit();
+        int chunks = (size + PARALLEL_CHUNK_SIZE - 1) / PARALLEL_CHUNK_SIZE;
+        int[][] found = new int[chunks][];
+        var tasks = new ArrayList<ForkJoinTask<?>>(chunks);
+        for (int c = 0; c < chunks; ++c) {
+            int chunk = c;
+            tasks.add(pool.submit(() -> {
+                int start = chunk * PARALLEL_CHUNK_SIZE;
+                found[chunk] = indexAll(data, start, Math.min(start + PARALLEL_CHUNK_SIZE, size), value);
+            }));
+        }
+        int count = 0;
+        for (int c = 0; c < chunks; ++c) {
+            tasks.get(c).join();
+            count += found[c].length;
+        }
+        int[] positions = new int[count];
+        int offset = 0;
+        for (int[] chunk : found) {
+            System.arraycopy(chunk, 0, positions, offset, chunk.length);
+            offset += chunk.length;
+        }
+        return positions;
+    }
+
+    static int scalarIndexOfAny(byte[] data, ByteSet set) {
+        for (int i = 0; i < data.length; ++i) {
+            if (set.contains(data[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] newText(SplittableRandom random, int size) {
+        byte[] text = new byte[size];
+        for (int i = 0; i < size; ++i) {
+            int c = random.nextInt(27);
+            text[i] = (byte) (c == 26 ? ' ' : 'a' + c);
+        }
+        return text;
+    }
+
     private static int firstZeroByte(long word) {
         long tmp = (word & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL;
         tmp = ~(tmp | word | 0x7F7F7F7F7F7F7F7FL);
@@ -0,0 +1,958 @@
+package com.openkappa.panama.vectorbenchmarks;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.stream.IntStream;
+
+import static com.openkappa.panama.vectorbenchmarks.Util.B256;
+import static com.openkappa.panama.vectorbenchmarks.Util.L256;
+import static com.openkappa.panama.vectorbenchmarks.Util.S256;
+import static jdk.incubator.vector.VectorOperators.ADD;
+import static jdk.incubator.vector.VectorOperators.AND;
+import static jdk.incubator.vector.VectorOperators.AND_NOT;
+import static jdk.incubator.vector.VectorOperators.LSHR;
+import static jdk.incubator.vector.VectorOperators.OR;
+import static jdk.incubator.vector.VectorOperators.XOR;
+
+/**
+ * A Roaring style compressed bitmap: the high 16 bits of a value select a container for the low 16 bits,
+ * which is a sorted array when it holds at most 4096 values, a bitmap of 1024 longs otherwise, or a list
+ * of runs when that is smaller. Containers are immutable so unchanged containers are shared between results.
+ * Runs are only combined directly with runs, and are otherwise converted to whichever of the other two
+ * containers they fit, so every pair of containers ends up in a word kernel, an array kernel or a bit test.
+ * Two bitmaps are combined four words per vector and counted in the same pass with PopCount's nibble
+ * lookup, and two arrays are intersected or subtracted by matchArrays, a block of 16 values at a time.
+ * The other pairs are scalar. A union or symmetric difference of arrays is a merge that drops duplicates,
+ * which needs a compress that JDK 17's Vector API lacks, so it is branch free instead. An array with a
+ * bitmap tests, sets, clears or flips the bit each value selects, which would be a gather or scatter of
+ * longs by char lanes, and those that change bits adjust the bitmap's cardinality per value rather than
+ * counting its words again.
+ * The kernels in BitmapLogicals, IntIntersection and IntersectionCardinality take ints rather than a
+ * container's chars or fixed 1024 words, so they are not called here.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsPrepend = {"--add-modules=jdk.incubator.vector"})
+public class ContainerBitmaps {
+
+  public static void main(String... args) {
+    SplittableRandom random = new SplittableRandom(0);
+    for (String distribution : new String[] {"empty", "sparse", "clustered", "full"}) {
+      for (int trial = 0; trial < 4; ++trial) {
+        // the last two trials straddle the sign bit, and the BitSets hold each value less the base
+        int base = trial < 2 ? 0 : Integer.MIN_VALUE - (1 << 21);
+        int[] leftValues = newValues(random, distribution, 1 << 22, base);
+        int[] rightValues = newValues(random, trial % 2 == 0 ? distribution : "clustered", 1 << 22, base);
+        Bitmap left = Bitmap.of(leftValues).runOptimize();
+        Bitmap right = Bitmap.of(rightValues).runOptimize();
+        BitSet leftBits = toBitSet(leftValues, base);
+        BitSet rightBits = toBitSet(rightValues, base);
+        check(distribution, "and", left.and(right), base, leftBits, rightBits, BitSet::and);
+        check(distribution, "or", left.or(right), base, leftBits, rightBits, BitSet::or);
+        check(distribution, "xor", left.xor(right), base, leftBits, rightBits, BitSet::xor);
+        check(distribution, "andNot", left.andNot(right), base, leftBits, rightBits, BitSet::andNot);
+        check(distribution, "andNot", right.andNot(left), base, rightBits, leftBits, BitSet::andNot);
+        for (int value : leftValues) {
+          if (!left.contains(value)) {
+            throw new IllegalStateException(distribution + ": lost " + value);
+          }
+        }
+      }
+    }
+    if (!Bitmap.of(-1, 0).contains(0) || !Bitmap.of(-1, 0).contains(-1)
+            || Bitmap.of(-1, 0).and(Bitmap.of(0)).cardinality() != 1) {
+      throw new IllegalStateException("negative values out of order");
+    }
+    for (int size : new int[] {0, 1, 15, 16, 17, 100, 1000, 4096}) {
+      for (int trial = 0; trial < 100; ++trial) {
+        char[] left = newSortedChars(random, size, 1 + random.nextInt(1 << 16));
+        char[] right = newSortedChars(random, random.nextInt(2 * size + 1), 1 + random.nextInt(1 << 16));
+        char[] out = new char[left.length];
+        char[] expected = new char[left.length];
+        for (boolean keepMatches : new boolean[] {true, false}) {
+          int count = matchArrays(left, right, out, keepMatches);
+          if (count != scalarMatchArrays(left, right, expected, keepMatches)
+                  || !Arrays.equals(out, 0, count, expected, 0, count)) {
+            throw new IllegalStateException("matchArrays failed: size=" + size + ", keepMatches=" + keepMatches);
+          }
+        }
+      }
+    }
+    System.out.println("ok");
+  }
+
+  private static final int MAX_ARRAY = 4096;
+  private static final int WORDS = 1024;
+  private static final int UNIVERSE = 1 << 24;
+  // words counted in byte lanes before they are widened
+  private static final int COUNT_BLOCK = 64;
+
+  @State(Scope.Benchmark)
+  public static class BitmapState {
+
+    @Param({"sparse", "clustered"})
+    String distribution;
+
+    Bitmap left;
+    Bitmap right;
+    long[] leftWords;
+    long[] rightWords;
+    long[] result;
+
+    @Setup(Level.Trial)
+    public void init() {
+      SplittableRandom random = new SplittableRandom(0);
+      int[] leftValues = newValues(random, distribution, UNIVERSE, 0);
+      int[] rightValues = newValues(random, distribution, UNIVERSE, 0);
+      left = Bitmap.of(leftValues).runOptimize();
+      right = Bitmap.of(rightValues).runOptimize();
+      leftWords = Arrays.copyOf(toBitSet(leftValues, 0).toLongArray(), UNIVERSE / Long.SIZE);
+      rightWords = Arrays.copyOf(toBitSet(rightValues, 0).toLongArray(), UNIVERSE / Long.SIZE);
+      result = new long[UNIVERSE / Long.SIZE];
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class ArrayState {
+
+    @Param({"64", "1024", "4096"})
+    int size;
+
+    char[] left;
+    char[] right;
+    char[] out;
+
+    @Setup(Level.Trial)
+    public void init() {
+      SplittableRandom random = new SplittableRandom(0);
+      left = newSortedChars(random, size, 1 << 16);
+      right = newSortedChars(random, size, 1 << 16);
+      out = new char[size];
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class ContainerState {
+
+    // two dense bitmaps, and an array at the largest size before it becomes a bitmap
+    Container left;
+    Container right;
+    Container array;
+
+    @Setup(Level.Trial)
+    public void init() {
+      SplittableRandom random = new SplittableRandom(0);
+      left = newContainer(random, 1 << 15);
+      right = newContainer(random, 1 << 15);
+      array = newContainer(random, MAX_ARRAY);
+    }
+
+    private static Container newContainer(SplittableRandom random, int size) {
+      char[] values = newSortedChars(random, size, 1 << 16);
+      return fromValues(values, values.length);
+    }
+  }
+
+  @Benchmark
+  public Container andBitmaps(ContainerState state) {
+    return and(state.left, state.right);
+  }
+
+  @Benchmark
+  public Container orBitmaps(ContainerState state) {
+    return or(state.left, state.right);
+  }
+
+  @Benchmark
+  public Container orBitmapArray(ContainerState state) {
+    return or(state.left, state.array);
+  }
+
+  @Benchmark
+  public Container xorBitmapArray(ContainerState state) {
+    return xor(state.left, state.array);
+  }
+
+  @Benchmark
+  public Bitmap and(BitmapState state) {
+    return state.left.and(state.right);
+  }
+
+  @Benchmark
+  public Bitmap or(BitmapState state) {
+    return state.left.or(state.right);
+  }
+
+  @Benchmark
+  public Bitmap xor(BitmapState state) {
+    return state.left.xor(state.right);
+  }
+
+  @Benchmark
+  public Bitmap andNot(BitmapState state) {
+    return state.left.andNot(state.right);
+  }
+
+  @Benchmark
+  public long[] andUncompressed(BitmapState state) {
+    for (int i = 0; i < state.result.length; i += L256.length()) {
+      LongVector.fromArray(L256, state.leftWords, i)
+              .and(LongVector.fromArray(L256, state.rightWords, i))
+              .intoArray(state.result, i);
+    }
+    return state.result;
+  }
+
+  @Benchmark
+  public long[] orUncompressed(BitmapState state) {
+    for (int i = 0; i < state.result.length; i += L256.length()) {
+      LongVector.fromArray(L256, state.leftWords, i)
+              .or(LongVector.fromArray(L256, state.rightWords, i))
+              .intoArray(state.result, i);
+    }
+    return state.result;
+  }
+
+  @Benchmark
+  public int intersectArraysVector(ArrayState state) {
+    return matchArrays(state.left, state.right, state.out, true);
+  }
+
+  @Benchmark
+  public int intersectArraysScalar(ArrayState state) {
+    return scalarMatchArrays(state.left, state.right, state.out, true);
+  }
+
+  public static final class Bitmap {
+
+    private final char[] keys;
+    private final Container[] containers;
+    private final int size;
+
+    private Bitmap(char[] keys, Container[] containers, int size) {
+      this.keys = keys;
+      this.containers = containers;
+      this.size = size;
+    }
+
+    public static Bitmap of(int... values) {
+      // keys are unsigned, so negative values sort after the positive ones
+      int[] sorted = IntStream.of(values).mapToLong(Integer::toUnsignedLong).sorted().distinct()
+              .mapToInt(value -> (int) value).toArray();
+      char[] keys = new char[sorted.length];
+      Container[] containers = new Container[sorted.length];
+      int size = 0;
+      int i = 0;
+      while (i < sorted.length) {
+        int key = sorted[i] >>> 16;
+        char[] low = new char[Math.min(sorted.length - i, 1 << 16)];
+        int count = 0;
+        for (; i < sorted.length && sorted[i] >>> 16 == key; ++i) {
+          low[count++] = (char) sorted[i];
+        }
+        keys[size] = (char) key;
+        containers[size++] = fromValues(low, count);
+      }
+      return new Bitmap(keys, containers, size);
+    }
+
+    /**
+     * @return a bitmap with each container replaced by runs wherever they take less space
+     */
+    public Bitmap runOptimize() {
+      Container[] optimized = new Container[size];
+      for (int i = 0; i < size; ++i) {
+        optimized[i] = containers[i].runOptimize();
+      }
+      return new Bitmap(keys, optimized, size);
+    }
+
+    public Bitmap and(Bitmap other) {
+      return merge(other, ContainerBitmaps::and, false, false);
+    }
+
+    public Bitmap or(Bitmap other) {
+      return merge(other, ContainerBitmaps::or, true, true);
+    }
+
+    public Bitmap xor(Bitmap other) {
+      return merge(other, ContainerBitmaps::xor, true, true);
+    }
+
+    public Bitmap andNot(Bitmap other) {
+      return merge(other, ContainerBitmaps::andNot, true, false);
+    }
+
+    public boolean contains(int value) {
+      int index = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+      return index >= 0 && containers[index].contains((char) value);
+    }
+
+    public long cardinality() {
+      long cardinality = 0;
+      for (int i = 0; i < size; ++i) {
+        cardinality += containers[i].cardinality();
+      }
+      return cardinality;
+    }
+
+    public int[] toArray() {
+      int[] values = new int[(int) cardinality()];
+      int count = 0;
+      for (int i = 0; i < size; ++i) {
+        int high = keys[i] << 16;
+        for (char low : containers[i].toValues()) {
+          values[count++] = high | low;
+        }
+      }
+      return values;
+    }
+
+    private Bitmap merge(Bitmap other, BinaryOperator<Container> operation, boolean keepLeft, boolean keepRight) {
+      char[] mergedKeys = new char[size + other.size];
+      Container[] merged = new Container[size + other.size];
+      int count = 0;
+      int i = 0;
+      int j = 0;
+      while (i < size || j < other.size) {
+        char key;
+        Container container;
+        if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+          key = keys[i];
+          container = keepLeft ? containers[i] : null;
+          ++i;
+        } else if (i == size || other.keys[j] < keys[i]) {
+          key = other.keys[j];
+          container = keepRight ? other.containers[j] : null;
+          ++j;
+        } else {
+          key = keys[i];
+          container = operation.apply(containers[i], other.containers[j]);
+          ++i;
+          ++j;
+        }
+        if (container != null) {
+          mergedKeys[count] = key;
+          merged[count++] = container;
+        }
+      }
+      return new Bitmap(mergedKeys, merged, count);
+    }
+  }
+
+  abstract static class Container {
+
+    abstract int cardinality();
+
+    abstract boolean contains(char value);
+
+    abstract char[] toValues();
+
+    abstract long[] toWords();
+
+    /**
+     * @return this container as an array or a bitmap, whichever fits
+     */
+    Container materialize() {
+      return this;
+    }
+
+    Container runOptimize() {
+      char[] values = toValues();
+      int runs = 0;
+      for (int i = 0; i < values.length; ++i) {
+        if (i == 0 || values[i] != values[i - 1] + 1) {
+          ++runs;
+        }
+      }
+      if (2 * runs >= Math.min(values.length, WORDS * 4)) {
+        return this;
+      }
+      char[] pairs = new char[2 * runs];
+      int count = 0;
+      for (int i = 0; i < values.length; ++i) {
+        if (i == 0 || values[i] != values[i - 1] + 1) {
+          pairs[count++] = values[i];
+          pairs[count++] = values[i];
+        } else {
+          pairs[count - 1] = values[i];
+        }
+      }
+      return new RunContainer(pairs);
+    }
+  }
+
+  static final class ArrayContainer extends Container {
+
+    final char[] values;
+
+    ArrayContainer(char[] values) {
+      this.values = values;
+    }
+
+    @Override
+    int cardinality() {
+      return values.length;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    @Override
+    char[] toValues() {
+      return values;
+    }
+
+    @Override
+    long[] toWords() {
+      long[] words = new long[WORDS];
+      for (char value : values) {
+        words[value >>> 6] |= 1L << value;
+      }
+      return words;
+    }
+  }
+
+  static final class BitmapContainer extends Container {
+
+    final long[] words;
+    final int cardinality;
+
+    BitmapContainer(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return (words[value >>> 6] >>> value & 1) != 0;
+    }
+
+    @Override
+    char[] toValues() {
+      char[] values = new char[cardinality];
+      int count = 0;
+      for (int i = 0; i < WORDS; ++i) {
+        long word = words[i];
+        while (word != 0) {
+          values[count++] = (char) (i * 64 + Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+      return values;
+    }
+
+    @Override
+    long[] toWords() {
+      return words;
+    }
+  }
+
+  static final class RunContainer extends Container {
+
+    // the first and last value of each run
+    final char[] runs;
+    final int cardinality;
+
+    RunContainer(char[] runs) {
+      this.runs = runs;
+      int cardinality = 0;
+      for (int i = 0; i < runs.length; i += 2) {
+        cardinality += runs[i + 1] - runs[i] + 1;
+      }
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char value) {
+      int low = 0;
+      int high = runs.length / 2 - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        if (runs[2 * middle + 1] < value) {
+          low = middle + 1;
+        } else if (runs[2 * middle] > value) {
+          high = middle - 1;
+        } else {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    char[] toValues() {
+      char[] values = new char[cardinality];
+      int count = 0;
+      for (int i = 0; i < runs.length; i += 2) {
+        for (int value = runs[i]; value <= runs[i + 1]; ++value) {
+          values[count++] = (char) value;
+        }
+      }
+      return values;
+    }
+
+    @Override
+    long[] toWords() {
+      long[] words = new long[WORDS];
+      for (int i = 0; i < runs.length; i += 2) {
+        int first = runs[i] >>> 6;
+        int last = runs[i + 1] >>> 6;
+        long firstMask = -1L << runs[i];
+        long lastMask = -1L >>> (63 - (runs[i + 1] & 63));
+        if (first == last) {
+          words[first] |= firstMask & lastMask;
+        } else {
+          words[first] |= firstMask;
+          Arrays.fill(words, first + 1, last, -1L);
+          words[last] |= lastMask;
+        }
+      }
+      return words;
+    }
+
+    @Override
+    Container materialize() {
+      return cardinality <= MAX_ARRAY ? new ArrayContainer(toValues()) : new BitmapContainer(toWords(), cardinality);
+    }
+
+    @Override
+    Container runOptimize() {
+      return this;
+    }
+  }
+
+  static Container and(Container left, Container right) {
+    if (left instanceof RunContainer && right instanceof RunContainer) {
+      return andRuns(((RunContainer) left).runs, ((RunContainer) right).runs);
+    }
+    left = left.materialize();
+    right = right.materialize();
+    if (left instanceof BitmapContainer && right instanceof BitmapContainer) {
+      return combineWords(left.toWords(), right.toWords(), AND);
+    }
+    if (left instanceof BitmapContainer) {
+      return filter(right.toValues(), left.toWords(), true);
+    }
+    if (right instanceof BitmapContainer) {
+      return filter(left.toValues(), right.toWords(), true);
+    }
+    char[] out = new char[Math.min(left.cardinality(), right.cardinality())];
+    if (left.cardinality() <= right.cardinality()) {
+      return fromValues(out, matchArrays(left.toValues(), right.toValues(), out, true));
+    }
+    return fromValues(out, matchArrays(right.toValues(), left.toValues(), out, true));
+  }
+
+  static Container or(Container left, Container right) {
+    if (left instanceof RunContainer && right instanceof RunContainer) {
+      return orRuns(((RunContainer) left).runs, ((RunContainer) right).runs);
+    }
+    left = left.materialize();
+    right = right.materialize();
+    if (left instanceof BitmapContainer && right instanceof BitmapContainer) {
+      return combineWords(left.toWords(), right.toWords(), OR);
+    }
+    if (left instanceof BitmapContainer) {
+      return setBits((BitmapContainer) left, right.toValues());
+    }
+    if (right instanceof BitmapContainer) {
+      return setBits((BitmapContainer) right, left.toValues());
+    }
+    char[] leftValues = left.toValues();
+    char[] rightValues = right.toValues();
+    char[] out = new char[leftValues.length + rightValues.length];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    // branch free, since which side comes next is unpredictable
+    while (i < leftValues.length && j < rightValues.length) {
+      int l = leftValues[i];
+      int r = rightValues[j];
+      out[count++] = (char) Math.min(l, r);
+      i += (l - r - 1) >>> 31;
+      j += (r - l - 1) >>> 31;
+    }
+    System.arraycopy(leftValues, i, out, count, leftValues.length - i);
+    count += leftValues.length - i;
+    System.arraycopy(rightValues, j, out, count, rightValues.length - j);
+    count += rightValues.length - j;
+    return fromValues(out, count);
+  }
+
+  static Container xor(Container left, Container right) {
+    left = left.materialize();
+    right = right.materialize();
+    if (left instanceof BitmapContainer && right instanceof BitmapContainer) {
+      return combineWords(left.toWords(), right.toWords(), XOR);
+    }
+    if (left instanceof BitmapContainer) {
+      return flipBits((BitmapContainer) left, right.toValues());
+    }
+    if (right instanceof BitmapContainer) {
+      return flipBits((BitmapContainer) right, left.toValues());
+    }
+    char[] leftValues = left.toValues();
+    char[] rightValues = right.toValues();
+    char[] out = new char[leftValues.length + rightValues.length];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < leftValues.length && j < rightValues.length) {
+      int l = leftValues[i];
+      int r = rightValues[j];
+      out[count] = (char) Math.min(l, r);
+      count += ((l - r) | (r - l)) >>> 31;
+      i += (l - r - 1) >>> 31;
+      j += (r - l - 1) >>> 31;
+    }
+    System.arraycopy(leftValues, i, out, count, leftValues.length - i);
+    count += leftValues.length - i;
+    System.arraycopy(rightValues, j, out, count, rightValues.length - j);
+    count += rightValues.length - j;
+    return fromValues(out, count);
+  }
+
+  static Container andNot(Container left, Container right) {
+    left = left.materialize();
+    right = right.materialize();
+    if (left instanceof BitmapContainer && right instanceof BitmapContainer) {
+      return combineWords(left.toWords(), right.toWords(), AND_NOT);
+    }
+    if (left instanceof BitmapContainer) {
+      return clearBits((BitmapContainer) left, right.toValues());
+    }
+    if (right instanceof BitmapContainer) {
+      return filter(left.toValues(), right.toWords(), false);
+    }
+    char[] out = new char[left.cardinality()];
+    return fromValues(out, matchArrays(left.toValues(), right.toValues(), out, false));
+  }
+
+  /**
+   * Combines the words and counts the result as it is written, with PopCount's nibble lookup. Each
+   * byte lane counts at most 8 bits per vector, so the byte counts are widened into short lanes after
+   * every block of 16 vectors, and each short lane counts at most 4096 bits over the container.
+   */
+  private static Container combineWords(long[] left, long[] right, VectorOperators.Binary operation) {
+    long[] words = new long[WORDS];
+    var nibbleCounts = ByteVector.fromArray(B256, PopCount.NIBBLE_COUNTS, 0);
+    var counts = ShortVector.zero(S256);
+    for (int block = 0; block < WORDS; block += COUNT_BLOCK) {
+      var byteCounts = ByteVector.zero(B256);
+      // lanewise is only intrinsic for a constant operator, so each gets its own loop
+      if (operation == AND) {
+        for (int i = block; i < block + COUNT_BLOCK; i += L256.length()) {
+          var combined = LongVector.fromArray(L256, left, i).and(LongVector.fromArray(L256, right, i));
+          combined.intoArray(words, i);
+          byteCounts = byteCounts.add(bitCounts(nibbleCounts, combined));
+        }
+      } else if (operation == OR) {
+        for (int i = block; i < block + COUNT_BLOCK; i += L256.length()) {
+          var combined = LongVector.fromArray(L256, left, i).or(LongVector.fromArray(L256, right, i));
+          combined.intoArray(words, i);
+          byteCounts = byteCounts.add(bitCounts(nibbleCounts, combined));
+        }
+      } else if (operation == XOR) {
+        for (int i = block; i < block + COUNT_BLOCK; i += L256.length()) {
+          var combined = LongVector.fromArray(L256, left, i).lanewise(XOR, LongVector.fromArray(L256, right, i));
+          combined.intoArray(words, i);
+          byteCounts = byteCounts.add(bitCounts(nibbleCounts, combined));
+        }
+      } else {
+        for (int i = block; i < block + COUNT_BLOCK; i += L256.length()) {
+          var combined = LongVector.fromArray(L256, left, i).lanewise(AND_NOT, LongVector.fromArray(L256, right, i));
+          combined.intoArray(words, i);
+          byteCounts = byteCounts.add(bitCounts(nibbleCounts, combined));
+        }
+      }
+      var pairs = byteCounts.reinterpretAsShorts();
+      counts = counts.add(pairs.and((short) 0xFF)).add(pairs.lanewise(LSHR, 8));
+    }
+    // a container can hold 65536 values, which doesn't fit in a short
+    var halves = counts.reinterpretAsInts();
+    return fromWords(words, halves.and(0xFFFF).add(halves.lanewise(LSHR, 16)).reduceLanes(ADD));
+  }
+
+  private static ByteVector bitCounts(ByteVector nibbleCounts, LongVector words) {
+    return nibbleCounts.rearrange(words.and(0x0F0F0F0F0F0F0F0FL).reinterpretAsBytes().toShuffle())
+            .add(nibbleCounts.rearrange(words.lanewise(LSHR, 4).and(0x0F0F0F0F0F0F0F0FL).reinterpretAsBytes().toShuffle()));
+  }
+
+  /**
+   * Writes the values of left which are (or with keepMatches false, aren't) in right to out and returns
+   * how many there were. Each block of 16 values of left is compared with each value in a block of
+   * right, and whichever block ends with the smaller value moves on, so the matches for a block of left
+   * accumulate in a mask until it moves on.
+   */
+  static int matchArrays(char[] left, char[] right, char[] out, boolean keepMatches) {
+    int lanes = S256.length();
+    long matched = 0;
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i + lanes <= left.length && j + lanes <= right.length) {
+      var block = ShortVector.fromCharArray(S256, left, i);
+      var hits = block.eq((short) right[j]);
+      for (int k = j + 1; k < j + lanes; ++k) {
+        hits = hits.or(block.eq((short) right[k]));
+      }
+      if (hits.anyTrue()) {
+        matched |= toBits(hits);
+      }
+      char leftLast = left[i + lanes - 1];
+      char rightLast = right[j + lanes - 1];
+      if (leftLast <= rightLast) {
+        long bits = keepMatches ? matched : ~matched & ((1L << lanes) - 1);
+        while (bits != 0) {
+          out[count++] = left[i + Long.numberOfTrailingZeros(bits)];
+          bits &= bits - 1;
+        }
+        matched = 0;
+        i += lanes;
+      }
+      if (rightLast <= leftLast) {
+        j += lanes;
+      }
+    }
+    // values of right before j can only match the current block, and those matches are in the mask
+    for (int k = i; k < left.length; ++k) {
+      while (j < right.length && right[j] < left[k]) {
+        ++j;
+      }
+      boolean match = (k - i < lanes && (matched >>> (k - i) & 1) != 0) || (j < right.length && right[j] == left[k]);
+      if (match == keepMatches) {
+        out[count++] = left[k];
+      }
+    }
+    return count;
+  }
+
+  /**
+   * ByteSearch.toBits for short masks: each long holds four lanes, which the multiply gathers into its top bits.
+   */
+  private static long toBits(VectorMask<Short> mask) {
+    var words = ShortVector.zero(S256).blend((short) 1, mask).reinterpretAsLongs();
+    long bits = 0;
+    for (int i = 0; i < 4; ++i) {
+      bits |= ((words.lane(i) * 0x0001000200040008L) >>> 48) << (i * 4);
+    }
+    return bits;
+  }
+
+  static int scalarMatchArrays(char[] left, char[] right, char[] out, boolean keepMatches) {
+    int count = 0;
+    int j = 0;
+    for (char value : left) {
+      while (j < right.length && right[j] < value) {
+        ++j;
+      }
+      if ((j < right.length && right[j] == value) == keepMatches) {
+        out[count++] = value;
+      }
+    }
+    return count;
+  }
+
+  private static Container andRuns(char[] left, char[] right) {
+    char[] runs = new char[left.length + right.length];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < left.length && j < right.length) {
+      char first = (char) Math.max(left[i], right[j]);
+      char last = (char) Math.min(left[i + 1], right[j + 1]);
+      if (first <= last) {
+        runs[count++] = first;
+        runs[count++] = last;
+      }
+      if (left[i + 1] < right[j + 1]) {
+        i += 2;
+      } else {
+        j += 2;
+      }
+    }
+    return count == 0 ? null : new RunContainer(Arrays.copyOf(runs, count));
+  }
+
+  private static Container orRuns(char[] left, char[] right) {
+    char[] runs = new char[left.length + right.length];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < left.length || j < right.length) {
+      char first;
+      char last;
+      if (j == right.length || (i < left.length && left[i] <= right[j])) {
+        first = left[i];
+        last = left[i + 1];
+        i += 2;
+      } else {
+        first = right[j];
+        last = right[j + 1];
+        j += 2;
+      }
+      if (count > 0 && first <= runs[count - 1] + 1) {
+        runs[count - 1] = (char) Math.max(runs[count - 1], last);
+      } else {
+        runs[count++] = first;
+        runs[count++] = last;
+      }
+    }
+    return new RunContainer(Arrays.copyOf(runs, count));
+  }
+
+  private static Container filter(char[] values, long[] words, boolean keepMatches) {
+    char[] out = new char[values.length];
+    int count = 0;
+    for (char value : values) {
+      if (((words[value >>> 6] >>> value & 1) != 0) == keepMatches) {
+        out[count++] = value;
+      }
+    }
+    return fromValues(out, count);
+  }
+
+  // these adjust the bitmap's cardinality by the bits they change rather than counting all the words again
+
+  private static Container setBits(BitmapContainer bitmap, char[] values) {
+    long[] result = bitmap.words.clone();
+    int cardinality = bitmap.cardinality;
+    for (char value : values) {
+      cardinality += (int) (~result[value >>> 6] >>> value & 1);
+      result[value >>> 6] |= 1L << value;
+    }
+    return fromWords(result, cardinality);
+  }
+
+  private static Container clearBits(BitmapContainer bitmap, char[] values) {
+    long[] result = bitmap.words.clone();
+    int cardinality = bitmap.cardinality;
+    for (char value : values) {
+      cardinality -= (int) (result[value >>> 6] >>> value & 1);
+      result[value >>> 6] &= ~(1L << value);
+    }
+    return fromWords(result, cardinality);
+  }
+
+  private static Container flipBits(BitmapContainer bitmap, char[] values) {
+    long[] result = bitmap.words.clone();
+    int cardinality = bitmap.cardinality;
+    for (char value : values) {
+      // +1 if the bit was clear, -1 if it was set
+      cardinality += 1 - 2 * (int) (result[value >>> 6] >>> value & 1);
+      result[value >>> 6] ^= 1L << value;
+    }
+    return fromWords(result, cardinality);
+  }
+
+  private static Container fromWords(long[] words, int cardinality) {
+    if (cardinality == 0) {
+      return null;
+    }
+    var bitmap = new BitmapContainer(words, cardinality);
+    return cardinality <= MAX_ARRAY ? new ArrayContainer(bitmap.toValues()) : bitmap;
+  }
+
+  private static Container fromValues(char[] values, int count) {
+    if (count == 0) {
+      return null;
+    }
+    var array = new ArrayContainer(Arrays.copyOf(values, count));
+    return count <= MAX_ARRAY ? array : new BitmapContainer(array.toWords(), count);
+  }
+
+  /**
+   * Sparse values are spread uniformly at a density of 0.1%, while clustered values are drawn chunk
+   * by chunk as empty, runs, dense noise or sparse noise, so exercise every kind of container.
+   * The values are offset by base, wrapping around, so they can straddle the sign bit.
+   */
+  private static int[] newValues(SplittableRandom random, String distribution, int universe, int base) {
+    var values = IntStream.builder();
+    for (int chunk = 0; chunk < universe; chunk += 1 << 16) {
+      String kind = distribution;
+      if ("clustered".equals(distribution)) {
+        kind = new String[] {"empty", "runs", "dense", "sparse"}[random.nextInt(4)];
+      }
+      switch (kind) {
+        case "full":
+          IntStream.range(chunk, chunk + (1 << 16)).forEach(values::add);
+          break;
+        case "runs":
+          for (int i = chunk + random.nextInt(1024); i < chunk + (1 << 16); i += random.nextInt(2048)) {
+            int end = Math.min(chunk + (1 << 16), i + random.nextInt(512));
+            for (; i < end; ++i) {
+              values.add(i);
+            }
+          }
+          break;
+        case "dense":
+          for (int i = chunk; i < chunk + (1 << 16); ++i) {
+            if (random.nextBoolean()) {
+              values.add(i);
+            }
+          }
+          break;
+        case "sparse":
+          for (int i = chunk; i < chunk + (1 << 16); ++i) {
+            if (random.nextInt(1000) == 0) {
+              values.add(i);
+            }
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    return values.build().map(value -> base + value).toArray();
+  }
+
+  private static char[] newSortedChars(SplittableRandom random, int size, int range) {
+    int[] values = random.ints(size, 0, range).sorted().distinct().toArray();
+    char[] chars = new char[values.length];
+    for (int i = 0; i < values.length; ++i) {
+      chars[i] = (char) values[i];
+    }
+    return chars;
+  }
+
+  private static BitSet toBitSet(int[] values, int base) {
+    BitSet bits = new BitSet();
+    for (int value : values) {
+      bits.set(value - base);
+    }
+    return bits;
+  }
+
+  private static void check(String distribution, String operation, Bitmap result, int base,
+                            BitSet left, BitSet right, BiConsumer<BitSet, BitSet> expected) {
+    BitSet bits = (BitSet) left.clone();
+    expected.accept(bits, right);
+    if (!Arrays.equals(IntStream.of(result.toArray()).map(value -> value - base).toArray(), bits.stream().toArray()) || result.cardinality() != bits.cardinality()) {
+      throw new IllegalStateException(distribution + ": " + operation + " failed");
+    }
+  }
+}
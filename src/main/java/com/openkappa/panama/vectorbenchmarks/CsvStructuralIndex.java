@@ -0,0 +1,164 @@
+package com.openkappa.panama.vectorbenchmarks;
+
+import jdk.incubator.vector.ByteVector;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.openkappa.panama.vectorbenchmarks.ByteSearch.toBits;
+import static com.openkappa.panama.vectorbenchmarks.Util.B256;
+
+/**
+ * The first stage of a simdjson style CSV parser: finds the offsets of the delimiters and
+ * newlines which end fields, ignoring those inside quoted fields. A quoted quote ("") toggles
+ * the quoted state twice, so needs no special handling. Records ending in \r\n end at the \n.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsPrepend = {"--add-modules=jdk.incubator.vector"})
+public class CsvStructuralIndex {
+
+  public static void main(String... args) {
+    SplittableRandom random = new SplittableRandom(0);
+    for (int size : new int[] {0, 1, 63, 64, 65, 1000, 100_000}) {
+      for (double quotedFraction : new double[] {0, 0.1, 0.5, 1}) {
+        byte[] csv = newCsv(random, size, quotedFraction);
+        for (byte delimiter : new byte[] {',', '\t'}) {
+          int[] vector = new int[size];
+          int[] scalar = new int[size];
+          int count = index(csv, delimiter, vector);
+          if (count != scalarIndex(csv, delimiter, scalar) || !Arrays.equals(vector, scalar)) {
+            throw new IllegalStateException("size=" + size + ", quotedFraction=" + quotedFraction);
+          }
+        }
+      }
+    }
+    System.out.println("ok");
+  }
+
+  @Param({"65536", "16777216"})
+  int size;
+
+  @Param({"0", "0.1", "0.5"})
+  double quotedFraction;
+
+  byte[] data;
+  int[] positions;
+
+  @Setup(Level.Trial)
+  public void init() {
+    data = newCsv(new SplittableRandom(0), size, quotedFraction);
+    positions = new int[size];
+  }
+
+  @Benchmark
+  public int vector() {
+    return index(data, (byte) ',', positions);
+  }
+
+  @Benchmark
+  public int scalar() {
+    return scalarIndex(data, (byte) ',', positions);
+  }
+
+  /**
+   * Writes the offsets of the field ending delimiters and newlines into positions, which must
+   * have room for data.length offsets, and returns how many there were.
+   */
+  static int index(byte[] data, byte delimiter, int[] positions) {
+    var quote = ByteVector.broadcast(B256, (byte) '"');
+    var separator = ByteVector.broadcast(B256, delimiter);
+    var newline = ByteVector.broadcast(B256, (byte) '\n');
+    // all ones when the previous block ended inside a quoted field
+    long carry = 0;
+    int count = 0;
+    int offset = 0;
+    byte[] block = data;
+    int blockOffset = 0;
+    while (offset < data.length) {
+      if (offset + 64 > data.length) {
+        // the last block is padded with zeros, which are never structural
+        block = Arrays.copyOfRange(data, offset, offset + 64);
+        blockOffset = 0;
+      }
+      var low = ByteVector.fromArray(B256, block, blockOffset);
+      var high = ByteVector.fromArray(B256, block, blockOffset + 32);
+      long quotes = toBits(low.eq(quote)) | toBits(high.eq(quote)) << 32;
+      long separators = toBits(low.eq(separator).or(low.eq(newline)))
+              | toBits(high.eq(separator).or(high.eq(newline))) << 32;
+      long quoted = prefixXor(quotes) ^ carry;
+      carry = quoted >> 63;
+      long fields = separators & ~quoted;
+      while (fields != 0) {
+        positions[count++] = offset + Long.numberOfTrailingZeros(fields);
+        fields &= fields - 1;
+      }
+      offset += 64;
+      blockOffset += 64;
+    }
+    return count;
+  }
+
+  static int scalarIndex(byte[] data, byte delimiter, int[] positions) {
+    boolean quoted = false;
+    int count = 0;
+    for (int i = 0; i < data.length; ++i) {
+      byte b = data[i];
+      if (b == '"') {
+        quoted = !quoted;
+      } else if (!quoted && (b == delimiter || b == '\n')) {
+        positions[count++] = i;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Each bit becomes the XOR of itself and every lower bit, so is set between an opening
+   * quote (inclusive) and its closing quote (exclusive).
+   */
+  private static long prefixXor(long bits) {
+    bits ^= bits << 1;
+    bits ^= bits << 2;
+    bits ^= bits << 4;
+    bits ^= bits << 8;
+    bits ^= bits << 16;
+    bits ^= bits << 32;
+    return bits;
+  }
+
+  private static byte[] newCsv(SplittableRandom random, int size, double quotedFraction) {
+    ByteArrayOutputStream csv = new ByteArrayOutputStream(size + 64);
+    int column = 0;
+    while (csv.size() < size) {
+      int length = random.nextInt(16);
+      if (random.nextDouble() < quotedFraction) {
+        csv.write('"');
+        for (int i = 0; i < length; ++i) {
+          int c = random.nextInt(32);
+          if (c == 26) {
+            csv.write(',');
+          } else if (c == 27) {
+            csv.write('\n');
+          } else if (c == 28) {
+            csv.write('"');
+            csv.write('"');
+          } else {
+            csv.write('a' + (c % 26));
+          }
+        }
+        csv.write('"');
+      } else {
+        for (int i = 0; i < length; ++i) {
+          csv.write('a' + random.nextInt(26));
+        }
+      }
+      csv.write(++column % 8 == 0 ? '\n' : ',');
+    }
+    return Arrays.copyOf(csv.toByteArray(), size);
+  }
+}
@@ -1,16 +1,40 @@
 package com.openkappa.panama.vectorbenchmarks;
 
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
 import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.ShortVector;
 import jdk.incubator.vector.VectorMask;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
+import static com.openkappa.panama.vectorbenchmarks.Util.B128;
+import static com.openkappa.panama.vectorbenchmarks.Util.F256;
 import static com.openkappa.panama.vectorbenchmarks.Util.I256;
+import static com.openkappa.panama.vectorbenchmarks.Util.L256;
+import static com.openkappa.panama.vectorbenchmarks.Util.S256;
 import static jdk.incubator.vector.VectorOperators.AND;
+import static jdk.incubator.vector.VectorOperators.B2S;
+import static jdk.incubator.vector.VectorOperators.EQ;
+import static jdk.incubator.vector.VectorOperators.GE;
+import static jdk.incubator.vector.VectorOperators.LE;
+import static jdk.incubator.vector.VectorOperators.LSHL;
 import static jdk.incubator.vector.VectorOperators.LSHR;
+import static jdk.incubator.vector.VectorOperators.SUB;
+import static jdk.incubator.vector.VectorOperators.UNSIGNED_LE;
 
 @State(Scope.Benchmark)
 @Fork(value = 1, jvmArgsPrepend = {"--add-modules=jdk.incubator.vector"})
@@ -29,17 +53,367 @@ DictionaryDecoding.vector4  1000000  avgt    5   98.945 ± 0.386  us/op
 
    */
 
+  // bigger than any last level cache, so a scan streams from memory or disk
+  private static final int COLUMN_BYTES = 1 << 27;
+  private static final int CHUNK_SIZE = 1024;
+
   private static final int[] SHIFTS_1 = {31, 30, 29, 28, 27, 26, 25, 24, 23, 22, 21, 20, 19, 18, 17, 16, 15, 14, 13, 12, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1, 0};
   private static final int[] SHIFTS_2 = {30, 28, 26, 24, 22, 20, 18, 16, 14, 12, 10, 8, 6, 4, 2, 0};
   private static final int[] SHIFTS_3 = {29, 26, 23, 20, 17, 14, 11, 8, 5, 2, 31, 28, 25, 22, 19, 16, 13, 10, 7, 4, 1, 30, 27, 24, 21, 18, 15, 12, 9, 6, 3, 0};
   private static final int[] SHIFTS_4 = {28, 24, 20, 16, 12, 8, 4, 0};
 
+  // for each bit width, the word each of the 32 values starts in and the bit it starts at within that word
+  private static final int[][] WORD_INDEXES = new int[33][32];
+  private static final int[][] BIT_OFFSETS = new int[33][32];
+  private static final int[][] SPILL_SHIFTS = new int[33][32];
+  // for packing, how far each value moves left or right into the word it starts in, and left into the next
+  private static final int[][] PACK_LEFT_SHIFTS = new int[33][32];
+  private static final int[][] PACK_RIGHT_SHIFTS = new int[33][32];
+  private static final int[][] PACK_SPILL_SHIFTS = new int[33][32];
+  // for each of the 1, 2 and 4 lane steps of an OR scan within each word, the lane each lane takes from,
+  // which is itself when that lane belongs to another word, and the last lane of each word in a group of 8,
+  // or -1 past the last word
+  private static final int[][] PACK_SCAN_LANES = new int[33][96];
+  private static final int[][] PACK_LAST_LANES = new int[33][32];
+  private static final int[] PACK_SCAN_STEPS = new int[33];
+
+  // for the narrow kernels, the byte each of the 32 values starts in, the byte after it and the bit it starts at
+  private static final byte[][] BYTE_INDEXES = new byte[5][32];
+  private static final byte[][] NEXT_BYTE_INDEXES = new byte[5][32];
+  private static final byte[][] BYTE_OFFSETS = new byte[5][32];
+  private static final byte[][] BYTE_SPILL_SHIFTS = new byte[5][32];
+
+  static {
+    for (int bitWidth = 1; bitWidth <= 4; ++bitWidth) {
+      for (int i = 0; i < 32; ++i) {
+        BYTE_INDEXES[bitWidth][i] = (byte) ((i * bitWidth) >>> 3);
+        // the last byte of a group has no successor, but nothing spills from it either
+        NEXT_BYTE_INDEXES[bitWidth][i] = (byte) Math.min(((i * bitWidth) >>> 3) + 1, bitWidth * 4 - 1);
+        BYTE_OFFSETS[bitWidth][i] = (byte) ((i * bitWidth) & 7);
+        BYTE_SPILL_SHIFTS[bitWidth][i] = (byte) (7 - BYTE_OFFSETS[bitWidth][i]);
+      }
+    }
+    for (int bitWidth = 1; bitWidth <= 32; ++bitWidth) {
+      for (int i = 0; i < 32; ++i) {
+        // relative to the first word of each group of 8 values
+        WORD_INDEXES[bitWidth][i] = ((i * bitWidth) >>> 5) - (((i & -8) * bitWidth) >>> 5);
+        BIT_OFFSETS[bitWidth][i] = (i * bitWidth) & 31;
+        // the following word is shifted right by one and then this much, so it vanishes at offset 0
+        SPILL_SHIFTS[bitWidth][i] = 31 - BIT_OFFSETS[bitWidth][i];
+        int end = BIT_OFFSETS[bitWidth][i] + bitWidth;
+        PACK_LEFT_SHIFTS[bitWidth][i] = Math.max(0, 32 - end);
+        PACK_RIGHT_SHIFTS[bitWidth][i] = Math.max(0, end - 32);
+        // only meaningful when the value spills, other lanes are cleared
+        PACK_SPILL_SHIFTS[bitWidth][i] = (64 - end) & 31;
+      }
+      Arrays.fill(PACK_LAST_LANES[bitWidth], -1);
+      int maxLanes = 1;
+      int lanes = 0;
+      for (int i = 0; i < 32; ++i) {
+        int lane = i & 7;
+        for (int step = 0; step < 3; ++step) {
+          int from = lane - (1 << step);
+          PACK_SCAN_LANES[bitWidth][step * 32 + i] = from >= 0 && WORD_INDEXES[bitWidth][i - lane + from] == WORD_INDEXES[bitWidth][i] ? from : lane;
+        }
+        PACK_LAST_LANES[bitWidth][(i & -8) + WORD_INDEXES[bitWidth][i]] = lane;
+        lanes = lane > 0 && WORD_INDEXES[bitWidth][i - 1] == WORD_INDEXES[bitWidth][i] ? lanes + 1 : 1;
+        maxLanes = Math.max(maxLanes, lanes);
+      }
+      PACK_SCAN_STEPS[bitWidth] = 32 - Integer.numberOfLeadingZeros(maxLanes - 1);
+    }
+  }
+
+  public static void main(String... args) {
+    validate(1 << 16);
+    // the default size, where the last group of the widest bit widths ends at the end of the buffer
+    validate(1000000);
+    System.out.println("ok");
+  }
+
+  private static void validate(int size) {
+    DictionaryDecoding decoding = new DictionaryDecoding();
+    decoding.size = size;
+    decoding.setup();
+    int[] expected = new int[32];
+    int[] actual = new int[32];
+    for (int bitWidth = 1; bitWidth <= 32; ++bitWidth) {
+      for (int i = 0; i + 32 <= decoding.size / 4; i += 32) {
+        decoding.read32(decoding.values, i, expected, 0, bitWidth);
+        decoding.read32Vector(decoding.values, i, actual, 0, bitWidth);
+        if (!Arrays.equals(expected, actual)) {
+          throw new IllegalStateException("bitWidth=" + bitWidth + ", index=" + i);
+        }
+        if (bitWidth <= 4) {
+          switch (bitWidth) {
+            case 1: decoding.read321(decoding.values, i, actual, 0); break;
+            case 2: decoding.read322(decoding.values, i, actual, 0); break;
+            case 3: decoding.read323(decoding.values, i, actual, 0); break;
+            default: decoding.read324(decoding.values, i, actual, 0); break;
+          }
+          if (!Arrays.equals(expected, actual)) {
+            throw new IllegalStateException("bitWidth=" + bitWidth + " disagrees with read32" + bitWidth);
+          }
+          byte[] bytes = new byte[32];
+          short[] shorts = new short[32];
+          switch (bitWidth) {
+            case 1: decoding.read32Vector1(decoding.values, i, bytes, 0); decoding.read32Vector1(decoding.values, i, shorts, 0); break;
+            case 2: decoding.read32Vector2(decoding.values, i, bytes, 0); decoding.read32Vector2(decoding.values, i, shorts, 0); break;
+            case 3: decoding.read32Vector3(decoding.values, i, bytes, 0); decoding.read32Vector3(decoding.values, i, shorts, 0); break;
+            default: decoding.read32Vector4(decoding.values, i, bytes, 0); decoding.read32Vector4(decoding.values, i, shorts, 0); break;
+          }
+          for (int j = 0; j < 32; ++j) {
+            if (bytes[j] != expected[j] || shorts[j] != expected[j]) {
+              throw new IllegalStateException("bitWidth=" + bitWidth + " narrow decoding failed at " + (i + j));
+            }
+          }
+        }
+      }
+    }
+    int[] codes = new int[32];
+    int[] unpacked = new int[32];
+    ByteBuffer vectorPacked = ByteBuffer.allocateDirect(32 * 4);
+    ByteBuffer scalarPacked = ByteBuffer.allocateDirect(32 * 4);
+    SplittableRandom random = new SplittableRandom(0);
+    for (int bitWidth = 1; bitWidth <= 32; ++bitWidth) {
+      for (int trial = 0; trial < 100; ++trial) {
+        for (int i = 0; i < codes.length; ++i) {
+          codes[i] = random.nextInt();
+        }
+        decoding.write32Vector(codes, 0, vectorPacked, 0, bitWidth);
+        decoding.write32(codes, 0, scalarPacked, 0, bitWidth);
+        decoding.read32(vectorPacked, 0, unpacked, 0, bitWidth);
+        for (int i = 0; i < codes.length; ++i) {
+          codes[i] &= (int) ((1L << bitWidth) - 1);
+        }
+        if (!vectorPacked.equals(scalarPacked) || !Arrays.equals(codes, unpacked)) {
+          throw new IllegalStateException("packing failed: bitWidth=" + bitWidth);
+        }
+      }
+    }
+    for (int bitWidth = 1; bitWidth <= 20; ++bitWidth) {
+      DictionaryState dictionaries = new DictionaryState();
+      dictionaries.bitWidth = bitWidth;
+      dictionaries.init();
+      int[] ints = new int[32];
+      long[] longs = new long[32];
+      float[] floats = new float[32];
+      for (int i = 0; i + 32 <= decoding.size / 4; i += 32) {
+        decoding.read32(decoding.values, i, expected, 0, bitWidth);
+        decoding.read32GatherInt(decoding.values, i, dictionaries.ints, ints, 0, bitWidth);
+        decoding.read32GatherLong(decoding.values, i, dictionaries.longs, longs, 0, bitWidth);
+        decoding.read32GatherFloat(decoding.values, i, dictionaries.floats, floats, 0, bitWidth);
+        for (int j = 0; j < 32; ++j) {
+          if (ints[j] != dictionaries.ints[expected[j]]
+                  || longs[j] != dictionaries.longs[expected[j]]
+                  || floats[j] != dictionaries.floats[expected[j]]) {
+            throw new IllegalStateException("gather failed: bitWidth=" + bitWidth + ", index=" + (i + j));
+          }
+        }
+      }
+    }
+    for (int bitWidth = 1; bitWidth <= 20; ++bitWidth) {
+      int lower = (1 << bitWidth) / 4;
+      int upper = (1 << bitWidth) / 2;
+      // an empty IN list matches nothing
+      int[][] sets = {{}, {lower}, {0, 1, (1 << bitWidth) - 1}};
+      long[] vector = new long[decoding.size / 4 / 64 + 1];
+      long[] scalar = new long[vector.length];
+      for (int i = 0; i + 32 <= decoding.size / 4; i += 32) {
+        decoding.read32(decoding.values, i, expected, 0, bitWidth);
+        decoding.equals32Vector(decoding.values, i, expected[7], vector, bitWidth);
+        decoding.equals32(decoding.values, i, expected[7], scalar, bitWidth);
+        for (int j = 0; j < 32; ++j) {
+          int k = i + j;
+          boolean bit = (vector[k >>> 6] & (1L << k)) != 0;
+          if (bit != (expected[j] == expected[7]) || bit != ((scalar[k >>> 6] & (1L << k)) != 0)) {
+            throw new IllegalStateException("equality failed: bitWidth=" + bitWidth + ", index=" + k);
+          }
+        }
+        for (int[] set : sets) {
+          // start from all ones so bits which should be cleared are
+          Arrays.fill(vector, -1L);
+          decoding.in32Vector(decoding.values, i, set, vector, bitWidth);
+          decoding.in32(decoding.values, i, set, scalar, bitWidth);
+          for (int j = 0; j < 32; ++j) {
+            int k = i + j;
+            boolean bit = (vector[k >>> 6] & (1L << k)) != 0;
+            int value = expected[j];
+            if (bit != IntStream.of(set).anyMatch(member -> member == value) || bit != ((scalar[k >>> 6] & (1L << k)) != 0)) {
+              throw new IllegalStateException("in failed: bitWidth=" + bitWidth + ", set=" + Arrays.toString(set) + ", index=" + k);
+            }
+          }
+        }
+        decoding.between32Vector(decoding.values, i, lower, upper, vector, bitWidth);
+        decoding.between32(decoding.values, i, lower, upper, scalar, bitWidth);
+        for (int j = 0; j < 32; ++j) {
+          int k = i + j;
+          boolean bit = (vector[k >>> 6] & (1L << k)) != 0;
+          if (bit != (expected[j] >= lower && expected[j] <= upper) || bit != ((scalar[k >>> 6] & (1L << k)) != 0)) {
+            throw new IllegalStateException("range failed: bitWidth=" + bitWidth + ", index=" + k);
+          }
+        }
+      }
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class BitWidthState {
+    @Param({"1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12", "13", "14", "15", "16",
+            "17", "18", "19", "20", "21", "22", "23", "24", "25", "26", "27", "28", "29", "30", "31", "32"})
+    int bitWidth;
+  }
+
+  @State(Scope.Benchmark)
+  public static class DictionaryState {
+    @Param({"4", "8", "12", "16", "20"})
+    int bitWidth;
+
+    int[] ints;
+    long[] longs;
+    float[] floats;
+
+    @Setup(Level.Trial)
+    public void init() {
+      SplittableRandom random = new SplittableRandom(0);
+      ints = new int[1 << bitWidth];
+      longs = new long[1 << bitWidth];
+      floats = new float[1 << bitWidth];
+      for (int i = 0; i < ints.length; ++i) {
+        ints[i] = random.nextInt();
+        longs[i] = random.nextLong();
+        floats[i] = (float) random.nextDouble();
+      }
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class PredicateState {
+    @Param({"4", "8", "12", "16", "20"})
+    int bitWidth;
+
+    int value;
+    int lower;
+    int upper;
+    int[] set;
+    long[] bitmap;
+
+    @Setup(Level.Trial)
+    public void init(DictionaryDecoding decoding) {
+      SplittableRandom random = new SplittableRandom(0);
+      value = random.nextInt(1 << bitWidth);
+      lower = (1 << bitWidth) / 4;
+      upper = (1 << bitWidth) / 2;
+      set = new int[] {random.nextInt(1 << bitWidth), random.nextInt(1 << bitWidth),
+              random.nextInt(1 << bitWidth), random.nextInt(1 << bitWidth)};
+      bitmap = new long[(decoding.size / 4 + 63) / 64];
+    }
+  }
+
+  /**
+   * A packed column of COLUMN_BYTES bytes, either in a direct buffer or in a temp file mapped
+   * with FileChannel.map. Pages which are mapped can't be evicted, and a mapping can't be
+   * unmapped on demand, so a cold column is written to a fresh file before every invocation,
+   * evicted from the page cache while it is unmapped, and only then mapped. Evicting needs write
+   * access to /proc/sys/vm/drop_caches, and a cold column fails rather than silently being warm
+   * without it.
+   */
+  @State(Scope.Benchmark)
+  public static class ColumnState {
+
+    private static final Path DROP_CACHES = Path.of("/proc/sys/vm/drop_caches");
+
+    @Param({"4", "12", "20"})
+    int bitWidth;
+
+    @Param({"direct", "warm", "cold"})
+    String source;
+
+    ByteBuffer packed;
+    Path file;
+    ByteBuffer column;
+    int count;
+    int[] chunk;
+
+    @Setup(Level.Trial)
+    public void init() throws IOException {
+      if ("cold".equals(source) && !Files.isWritable(DROP_CACHES)) {
+        throw new IllegalStateException("a cold column needs write access to " + DROP_CACHES
+                + " to evict the page cache, run as root or exclude source=cold");
+      }
+      count = COLUMN_BYTES / (bitWidth * 4) * 32;
+      packed = ByteBuffer.allocateDirect(count / 32 * bitWidth * 4);
+      SplittableRandom random = new SplittableRandom(0);
+      DictionaryDecoding packer = new DictionaryDecoding();
+      int[] group = new int[32];
+      for (int i = 0; i < count; i += 32) {
+        for (int j = 0; j < 32; ++j) {
+          group[j] = random.nextInt();
+        }
+        packer.write32(group, 0, packed, i, bitWidth);
+      }
+      if ("direct".equals(source)) {
+        column = packed;
+      } else if ("warm".equals(source)) {
+        column = mapFreshFile();
+      }
+      chunk = new int[CHUNK_SIZE];
+    }
+
+    @Setup(Level.Invocation)
+    public void evict() throws IOException {
+      if ("cold".equals(source)) {
+        // the previous mapping is released when it is collected, and its file already deleted
+        column = null;
+        System.gc();
+        column = mapFreshFile();
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+      column = null;
+      if (file != null) {
+        Files.deleteIfExists(file);
+      }
+    }
+
+    private ByteBuffer mapFreshFile() throws IOException {
+      if (file != null) {
+        Files.deleteIfExists(file);
+      }
+      file = Files.createTempFile("column", ".bin");
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        ByteBuffer contents = packed.duplicate().clear();
+        while (contents.hasRemaining()) {
+          channel.write(contents);
+        }
+        channel.force(true);
+        if ("cold".equals(source)) {
+          Files.writeString(DROP_CACHES, "1");
+        }
+        // the mapping outlives the channel
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, packed.capacity());
+      }
+    }
+  }
+
   @Param("1000000")
   int size;
 
   private ByteBuffer values;
   private int[] buffer;
   private int[] buffer2;
+  private final int[] words = new int[40];
+  private int[] codes;
+  private ByteBuffer packed;
+  private final int[] ids = new int[32];
+  private final byte[] scratchBytes = new byte[16];
+  private final byte[] byteBuffer = new byte[32];
+  private final short[] shortBuffer = new short[32];
+  private int[] decoded;
+  private int[] intOut;
+  private long[] longOut;
+  private float[] floatOut;
 
   @Setup(Level.Trial)
   public void setup() {
@@ -47,6 +421,14 @@ DictionaryDecoding.vector4  1000000  avgt    5   98.945 ± 0.386  us/op
     buffer = new int[32];
     buffer2 = new int[32];
     values = ByteBuffer.allocateDirect((size + 3) & -4);
+    packed = ByteBuffer.allocateDirect((size + 3) & -4);
+    codes = new int[size / 4];
+    decoded = new int[size / 4];
+    intOut = new int[size / 4];
+    longOut = new long[size / 4];
+    floatOut = new float[size / 4];
+    for (int i = 0; i < codes.length; i++)
+      codes[i] = random.nextInt();
     for (int i = 0; i < size / 4; i++)
       values.putInt(random.nextInt());
   }
@@ -124,8 +506,611 @@ DictionaryDecoding.vector4  1000000  avgt    5   98.945 ± 0.386  us/op
     }
   }
 
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void bytes1(Blackhole bh) {
+    for (int i = 0; i < size / 4; i += 32) {
+      read32Vector1(values, i, byteBuffer, 0);
+      bh.consume(byteBuffer);
+    }
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void shorts1(Blackhole bh) {
+    for (int i = 0; i < size / 4; i += 32) {
+      read32Vector1(values, i, shortBuffer, 0);
+      bh.consume(shortBuffer);
+    }
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void bytes2(Blackhole bh) {
+    for (int i = 0; i < size / 4; i += 32) {
+      read32Vector2(values, i, byteBuffer, 0);
+      bh.consume(byteBuffer);
+    }
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void shorts2(Blackhole bh) {
+    for (int i = 0; i < size / 4; i += 32) {
+      read32Vector2(values, i, shortBuffer, 0);
+      bh.consume(shortBuffer);
+    }
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void bytes3(Blackhole bh) {
+    for (int i = 0; i < size / 4; i += 32) {
+      read32Vector3(values, i, byteBuffer, 0);
+      bh.consume(byteBuffer);
+    }
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void shorts3(Blackhole bh) {
+    for (int i = 0; i < size / 4; i += 32) {
+      read32Vector3(values, i, shortBuffer, 0);
+      bh.consume(shortBuffer);
+    }
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void bytes4(Blackhole bh) {
+    for (int i = 0; i < size / 4; i += 32) {
+      read32Vector4(values, i, byteBuffer, 0);
+      bh.consume(byteBuffer);
+    }
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void shorts4(Blackhole bh) {
+    for (int i = 0; i < size / 4; i += 32) {
+      read32Vector4(values, i, shortBuffer, 0);
+      bh.consume(shortBuffer);
+    }
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void vector(BitWidthState state, Blackhole bh) {
+    for (int i = 0; i + 32 <= size / 4; i += 32) {
+      read32Vector(values, i, buffer, 0, state.bitWidth);
+      bh.consume(buffer);
+    }
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void scalar(BitWidthState state, Blackhole bh) {
+    for (int i = 0; i + 32 <= size / 4; i += 32) {
+      read32(values, i, buffer, 0, state.bitWidth);
+      bh.consume(buffer);
+    }
+  }
+
+  public void read32Vector(ByteBuffer in, int index, int[] out, int outPos, int bitWidth) {
+    read32VectorAt(in, (index >>> 5) * bitWidth * 4, out, outPos, bitWidth);
+  }
+
+  /**
+   * As read32Vector, but for 32 values starting at a byte offset rather than at a multiple of 32 values.
+   */
+  public void read32VectorAt(ByteBuffer in, int offset, int[] out, int outPos, int bitWidth) {
+    int[] words = loadWordsAt(in, offset, bitWidth);
+    for (int i = 0; i < 32; i += 8) {
+      unpack8(words, i, bitWidth).intoArray(out, outPos + i);
+    }
+  }
+
+  private int[] loadWords(ByteBuffer in, int index, int bitWidth) {
+    return loadWordsAt(in, (index >>> 5) * bitWidth * 4, bitWidth);
+  }
+
+  private int[] loadWordsAt(ByteBuffer in, int offset, int bitWidth) {
+    int[] words = this.words;
+    for (int i = 0; i < bitWidth; ++i) {
+      words[i] = in.getInt(offset + i * 4);
+    }
+    return words;
+  }
+
+  private static IntVector unpack8(int[] words, int i, int bitWidth) {
+    int base = (i * bitWidth) >>> 5;
+    var wordIndexes = IntVector.fromArray(I256, WORD_INDEXES[bitWidth], i).toShuffle();
+    // take 32 bits starting at the value from its word and the next, then keep the top bitWidth bits
+    return IntVector.fromArray(I256, words, base).rearrange(wordIndexes)
+            .lanewise(LSHL, IntVector.fromArray(I256, BIT_OFFSETS[bitWidth], i))
+            .or(IntVector.fromArray(I256, words, base + 1).rearrange(wordIndexes)
+                    .lanewise(LSHR, 1)
+                    .lanewise(LSHR, IntVector.fromArray(I256, SPILL_SHIFTS[bitWidth], i)))
+            .lanewise(LSHR, 32 - bitWidth);
+  }
+
+  /**
+   * Sets the 32 bits of bitmap starting at index for the values equal to value, without storing the values.
+   */
+  public void equals32Vector(ByteBuffer in, int index, int value, long[] bitmap, int bitWidth) {
+    int[] words = loadWords(in, index, bitWidth);
+    long bits = 0;
+    for (int i = 0; i < 32; i += 8) {
+      bits |= unpack8(words, i, bitWidth).compare(EQ, value).toLong() << i;
+    }
+    setBits32(bitmap, index, bits);
+  }
+
+  /**
+   * Sets the 32 bits of bitmap starting at index for the values between lower and upper inclusive.
+   */
+  public void between32Vector(ByteBuffer in, int index, int lower, int upper, long[] bitmap, int bitWidth) {
+    int[] words = loadWords(in, index, bitWidth);
+    long bits = 0;
+    for (int i = 0; i < 32; i += 8) {
+      // one unsigned comparison: values below lower wrap around to large numbers
+      bits |= unpack8(words, i, bitWidth).lanewise(SUB, lower).compare(UNSIGNED_LE, upper - lower).toLong() << i;
+    }
+    setBits32(bitmap, index, bits);
+  }
+
+  /**
+   * Sets the 32 bits of bitmap starting at index for the values contained in set.
+   */
+  public void in32Vector(ByteBuffer in, int index, int[] set, long[] bitmap, int bitWidth) {
+    if (set.length == 0) {
+      setBits32(bitmap, index, 0);
+      return;
+    }
+    int[] words = loadWords(in, index, bitWidth);
+    long bits = 0;
+    for (int i = 0; i < 32; i += 8) {
+      var values = unpack8(words, i, bitWidth);
+      var matches = values.compare(EQ, set[0]);
+      for (int j = 1; j < set.length; ++j) {
+        matches = matches.or(values.compare(EQ, set[j]));
+      }
+      bits |= matches.toLong() << i;
+    }
+    setBits32(bitmap, index, bits);
+  }
+
+  public void equals32(ByteBuffer in, int index, int value, long[] bitmap, int bitWidth) {
+    int[] ids = this.ids;
+    read32(in, index, ids, 0, bitWidth);
+    long bits = 0;
+    for (int i = 0; i < 32; ++i) {
+      bits |= (ids[i] == value ? 1L : 0L) << i;
+    }
+    setBits32(bitmap, index, bits);
+  }
+
+  public void between32(ByteBuffer in, int index, int lower, int upper, long[] bitmap, int bitWidth) {
+    int[] ids = this.ids;
+    read32(in, index, ids, 0, bitWidth);
+    long bits = 0;
+    for (int i = 0; i < 32; ++i) {
+      bits |= (Integer.compareUnsigned(ids[i] - lower, upper - lower) <= 0 ? 1L : 0L) << i;
+    }
+    setBits32(bitmap, index, bits);
+  }
+
+  public void in32(ByteBuffer in, int index, int[] set, long[] bitmap, int bitWidth) {
+    int[] ids = this.ids;
+    read32(in, index, ids, 0, bitWidth);
+    long bits = 0;
+    for (int i = 0; i < 32; ++i) {
+      for (int member : set) {
+        if (ids[i] == member) {
+          bits |= 1L << i;
+          break;
+        }
+      }
+    }
+    setBits32(bitmap, index, bits);
+  }
+
+  private static void setBits32(long[] bitmap, int index, long bits) {
+    int shift = index & 63;
+    bitmap[index >>> 6] = (bitmap[index >>> 6] & ~(0xFFFFFFFFL << shift)) | (bits << shift);
+  }
+
+  public void read32(ByteBuffer in, int index, int[] out, int outPos, int bitWidth) {
+    read32At(in, (index >>> 5) * bitWidth * 4, out, outPos, bitWidth);
+  }
+
+  public void read32At(ByteBuffer in, int offset, int[] out, int outPos, int bitWidth) {
+    long mask = (1L << bitWidth) - 1;
+    long window = 0;
+    int bits = 0;
+    for (int i = 0; i < 32; ++i) {
+      if (bits < bitWidth) {
+        window = (window << 32) | (in.getInt(offset) & 0xFFFFFFFFL);
+        offset += 4;
+        bits += 32;
+      }
+      bits -= bitWidth;
+      out[outPos + i] = (int) ((window >>> bits) & mask);
+    }
+  }
+
+  /**
+   * Reads 32 values in Parquet's bit-packed layout, where each value starts at the least significant
+   * free bit and the bytes are little endian, so 32 values are bitWidth little endian ints.
+   */
+  public void readParquet32VectorAt(ByteBuffer in, int offset, int[] out, int outPos, int bitWidth) {
+    int[] words = this.words;
+    boolean swap = in.order() == ByteOrder.BIG_ENDIAN;
+    for (int i = 0; i < bitWidth; ++i) {
+      int word = in.getInt(offset + i * 4);
+      words[i] = swap ? Integer.reverseBytes(word) : word;
+    }
+    for (int i = 0; i < 32; i += 8) {
+      unpackLsb8(words, i, bitWidth).intoArray(out, outPos + i);
+    }
+  }
+
+  private static IntVector unpackLsb8(int[] words, int i, int bitWidth) {
+    int base = (i * bitWidth) >>> 5;
+    var wordIndexes = IntVector.fromArray(I256, WORD_INDEXES[bitWidth], i).toShuffle();
+    // the value's low bits are the top of its word and its high bits the bottom of the next
+    return IntVector.fromArray(I256, words, base).rearrange(wordIndexes)
+            .lanewise(LSHR, IntVector.fromArray(I256, BIT_OFFSETS[bitWidth], i))
+            .or(IntVector.fromArray(I256, words, base + 1).rearrange(wordIndexes)
+                    .lanewise(LSHL, 1)
+                    .lanewise(LSHL, IntVector.fromArray(I256, SPILL_SHIFTS[bitWidth], i)))
+            .lanewise(AND, (int) ((1L << bitWidth) - 1));
+  }
+
+  public void readParquet32At(ByteBuffer in, int offset, int[] out, int outPos, int bitWidth) {
+    boolean swap = in.order() == ByteOrder.BIG_ENDIAN;
+    long mask = (1L << bitWidth) - 1;
+    long window = 0;
+    int bits = 0;
+    for (int i = 0; i < 32; ++i) {
+      if (bits < bitWidth) {
+        int word = in.getInt(offset);
+        window |= ((swap ? Integer.reverseBytes(word) : word) & 0xFFFFFFFFL) << bits;
+        offset += 4;
+        bits += 32;
+      }
+      out[outPos + i] = (int) (window & mask);
+      window >>>= bitWidth;
+      bits -= bitWidth;
+    }
+  }
+
+  /**
+   * Reads one Parquet group of 8 values from its bitWidth bytes.
+   */
+  public void readParquet8At(ByteBuffer in, int offset, int[] out, int outPos, int bitWidth) {
+    long mask = (1L << bitWidth) - 1;
+    long window = 0;
+    int bits = 0;
+    for (int i = 0; i < 8; ++i) {
+      while (bits < bitWidth) {
+        window |= (in.get(offset++) & 0xFFL) << bits;
+        bits += 8;
+      }
+      out[outPos + i] = (int) (window & mask);
+      window >>>= bitWidth;
+      bits -= bitWidth;
+    }
+  }
+
+  public void writeParquet8At(int[] in, int inPos, ByteBuffer out, int offset, int bitWidth) {
+    long mask = (1L << bitWidth) - 1;
+    long window = 0;
+    int bits = 0;
+    for (int i = 0; i < 8; ++i) {
+      window |= (in[inPos + i] & mask) << bits;
+      bits += bitWidth;
+      while (bits >= 8) {
+        out.put(offset++, (byte) window);
+        window >>>= 8;
+        bits -= 8;
+      }
+    }
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void packVector(BitWidthState state, Blackhole bh) {
+    for (int i = 0; i + 32 <= size / 4; i += 32) {
+      write32Vector(codes, i, packed, i, state.bitWidth);
+    }
+    bh.consume(packed);
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void packScalar(BitWidthState state, Blackhole bh) {
+    for (int i = 0; i + 32 <= size / 4; i += 32) {
+      write32(codes, i, packed, i, state.bitWidth);
+    }
+    bh.consume(packed);
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void decodeThenLookupInt(DictionaryState state, Blackhole bh) {
+    for (int i = 0; i + 32 <= size / 4; i += 32) {
+      read32Vector(values, i, decoded, i, state.bitWidth);
+    }
+    int[] dictionary = state.ints;
+    for (int i = 0; i < ((size / 4) & -32); ++i) {
+      intOut[i] = dictionary[decoded[i]];
+    }
+    bh.consume(intOut);
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void fusedScalarInt(DictionaryState state, Blackhole bh) {
+    for (int i = 0; i + 32 <= size / 4; i += 32) {
+      read32Lookup(values, i, state.ints, intOut, i, state.bitWidth);
+    }
+    bh.consume(intOut);
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void fusedGatherInt(DictionaryState state, Blackhole bh) {
+    for (int i = 0; i + 32 <= size / 4; i += 32) {
+      read32GatherInt(values, i, state.ints, intOut, i, state.bitWidth);
+    }
+    bh.consume(intOut);
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void decodeThenLookupLong(DictionaryState state, Blackhole bh) {
+    for (int i = 0; i + 32 <= size / 4; i += 32) {
+      read32Vector(values, i, decoded, i, state.bitWidth);
+    }
+    long[] dictionary = state.longs;
+    for (int i = 0; i < ((size / 4) & -32); ++i) {
+      longOut[i] = dictionary[decoded[i]];
+    }
+    bh.consume(longOut);
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void fusedGatherLong(DictionaryState state, Blackhole bh) {
+    for (int i = 0; i + 32 <= size / 4; i += 32) {
+      read32GatherLong(values, i, state.longs, longOut, i, state.bitWidth);
+    }
+    bh.consume(longOut);
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void decodeThenLookupFloat(DictionaryState state, Blackhole bh) {
+    for (int i = 0; i + 32 <= size / 4; i += 32) {
+      read32Vector(values, i, decoded, i, state.bitWidth);
+    }
+    float[] dictionary = state.floats;
+    for (int i = 0; i < ((size / 4) & -32); ++i) {
+      floatOut[i] = dictionary[decoded[i]];
+    }
+    bh.consume(floatOut);
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void fusedGatherFloat(DictionaryState state, Blackhole bh) {
+    for (int i = 0; i + 32 <= size / 4; i += 32) {
+      read32GatherFloat(values, i, state.floats, floatOut, i, state.bitWidth);
+    }
+    bh.consume(floatOut);
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void decodeThenFilter(PredicateState state, Blackhole bh) {
+    long[] bitmap = state.bitmap;
+    int value = state.value;
+    for (int i = 0; i + 32 <= size / 4; i += 32) {
+      read32Vector(values, i, ids, 0, state.bitWidth);
+      long bits = 0;
+      for (int j = 0; j < 32; ++j) {
+        bits |= (ids[j] == value ? 1L : 0L) << j;
+      }
+      setBits32(bitmap, i, bits);
+    }
+    bh.consume(bitmap);
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void equalsVector(PredicateState state, Blackhole bh) {
+    for (int i = 0; i + 32 <= size / 4; i += 32) {
+      equals32Vector(values, i, state.value, state.bitmap, state.bitWidth);
+    }
+    bh.consume(state.bitmap);
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void equalsScalar(PredicateState state, Blackhole bh) {
+    for (int i = 0; i + 32 <= size / 4; i += 32) {
+      equals32(values, i, state.value, state.bitmap, state.bitWidth);
+    }
+    bh.consume(state.bitmap);
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void betweenVector(PredicateState state, Blackhole bh) {
+    for (int i = 0; i + 32 <= size / 4; i += 32) {
+      between32Vector(values, i, state.lower, state.upper, state.bitmap, state.bitWidth);
+    }
+    bh.consume(state.bitmap);
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void betweenScalar(PredicateState state, Blackhole bh) {
+    for (int i = 0; i + 32 <= size / 4; i += 32) {
+      between32(values, i, state.lower, state.upper, state.bitmap, state.bitWidth);
+    }
+    bh.consume(state.bitmap);
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void inVector(PredicateState state, Blackhole bh) {
+    for (int i = 0; i + 32 <= size / 4; i += 32) {
+      in32Vector(values, i, state.set, state.bitmap, state.bitWidth);
+    }
+    bh.consume(state.bitmap);
+  }
+
+  @Benchmark
+  @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+  public void inScalar(PredicateState state, Blackhole bh) {
+    for (int i = 0; i + 32 <= size / 4; i += 32) {
+      in32(values, i, state.set, state.bitmap, state.bitWidth);
+    }
+    bh.consume(state.bitmap);
+  }
+
+  /**
+   * Scores are bytes of packed column per nanosecond, i.e. GB/s.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  @OperationsPerInvocation(COLUMN_BYTES)
+  public void scanColumnVector(ColumnState state, Blackhole bh) {
+    ByteBuffer column = state.column;
+    int[] chunk = state.chunk;
+    for (int i = 0; i < state.count; i += CHUNK_SIZE) {
+      int length = Math.min(CHUNK_SIZE, state.count - i);
+      for (int j = 0; j < length; j += 32) {
+        read32Vector(column, i + j, chunk, j, state.bitWidth);
+      }
+      bh.consume(chunk);
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  @OperationsPerInvocation(COLUMN_BYTES)
+  public void scanColumnScalar(ColumnState state, Blackhole bh) {
+    ByteBuffer column = state.column;
+    int[] chunk = state.chunk;
+    for (int i = 0; i < state.count; i += CHUNK_SIZE) {
+      int length = Math.min(CHUNK_SIZE, state.count - i);
+      for (int j = 0; j < length; j += 32) {
+        read32(column, i + j, chunk, j, state.bitWidth);
+      }
+      bh.consume(chunk);
+    }
+  }
+
+  /**
+   * Unpacks 32 dictionary ids into a scratch buffer which stays in L1 and
+   * immediately gathers the values they refer to.
+   */
+  public void read32GatherInt(ByteBuffer in, int index, int[] dictionary, int[] out, int outPos, int bitWidth) {
+    int[] ids = this.ids;
+    read32Vector(in, index, ids, 0, bitWidth);
+    for (int i = 0; i < 32; i += I256.length()) {
+      IntVector.fromArray(I256, dictionary, 0, ids, i).intoArray(out, outPos + i);
+    }
+  }
+
+  public void read32GatherLong(ByteBuffer in, int index, long[] dictionary, long[] out, int outPos, int bitWidth) {
+    int[] ids = this.ids;
+    read32Vector(in, index, ids, 0, bitWidth);
+    for (int i = 0; i < 32; i += L256.length()) {
+      LongVector.fromArray(L256, dictionary, 0, ids, i).intoArray(out, outPos + i);
+    }
+  }
+
+  public void read32GatherFloat(ByteBuffer in, int index, float[] dictionary, float[] out, int outPos, int bitWidth) {
+    int[] ids = this.ids;
+    read32Vector(in, index, ids, 0, bitWidth);
+    for (int i = 0; i < 32; i += F256.length()) {
+      FloatVector.fromArray(F256, dictionary, 0, ids, i).intoArray(out, outPos + i);
+    }
+  }
+
+  public void read32Lookup(ByteBuffer in, int index, int[] dictionary, int[] out, int outPos, int bitWidth) {
+    int[] ids = this.ids;
+    read32(in, index, ids, 0, bitWidth);
+    for (int i = 0; i < 32; ++i) {
+      out[outPos + i] = dictionary[ids[i]];
+    }
+  }
+
+  /**
+   * Packs the low bitWidth bits of 32 values into bitWidth ints in the layout read32Vector expects.
+   */
+  public void write32Vector(int[] in, int inPos, ByteBuffer out, int index, int bitWidth) {
+    int offset = (index >>> 5) * bitWidth * 4;
+    int[] words = this.words;
+    Arrays.fill(words, 0, bitWidth + 1, 0);
+    int mask = (int) ((1L << bitWidth) - 1);
+    for (int i = 0; i < 32; i += 8) {
+      var values = IntVector.fromArray(I256, in, inPos + i).lanewise(AND, mask);
+      var heads = values.lanewise(LSHL, IntVector.fromArray(I256, PACK_LEFT_SHIFTS[bitWidth], i))
+              .lanewise(LSHR, IntVector.fromArray(I256, PACK_RIGHT_SHIFTS[bitWidth], i));
+      var spills = values.lanewise(LSHL, IntVector.fromArray(I256, PACK_SPILL_SHIFTS[bitWidth], i))
+              .blend(0, IntVector.fromArray(I256, BIT_OFFSETS[bitWidth], i).compare(LE, 32 - bitWidth));
+      // only the last value in a word can spill, and the lane after it starts the next word,
+      // so moving spills up a lane leaves each word as the OR of a run of lanes
+      var bits = heads.or(spills.unslice(1));
+      for (int step = 0; step < PACK_SCAN_STEPS[bitWidth]; ++step) {
+        bits = bits.or(bits.rearrange(IntVector.fromArray(I256, PACK_SCAN_LANES[bitWidth], step * 32 + i).toShuffle()));
+      }
+      int first = (i * bitWidth) >>> 5;
+      int last = WORD_INDEXES[bitWidth][i + 7];
+      // the first word may be shared with the group before, so OR rather than store
+      var lastLanes = IntVector.fromArray(I256, PACK_LAST_LANES[bitWidth], i);
+      IntVector.fromArray(I256, words, first)
+              .or(bits.rearrange(lastLanes.toShuffle(), lastLanes.compare(GE, 0)))
+              .intoArray(words, first);
+      // the last lane's spill fell off the end of the group
+      words[first + last + 1] |= spills.lane(7);
+    }
+    for (int i = 0; i < bitWidth; ++i) {
+      out.putInt(offset + i * 4, words[i]);
+    }
+  }
+
+  public void write32(int[] in, int inPos, ByteBuffer out, int index, int bitWidth) {
+    write32At(in, inPos, out, (index >>> 5) * bitWidth * 4, bitWidth);
+  }
+
+  public void write32At(int[] in, int inPos, ByteBuffer out, int offset, int bitWidth) {
+    long mask = (1L << bitWidth) - 1;
+    long window = 0;
+    int bits = 0;
+    for (int i = 0; i < 32; ++i) {
+      window = (window << bitWidth) | (in[inPos + i] & mask);
+      bits += bitWidth;
+      if (bits >= 32) {
+        bits -= 32;
+        out.putInt(offset, (int) (window >>> bits));
+        offset += 4;
+      }
+    }
+  }
+
   public void read32Vector1(ByteBuffer in, int index, int[] out, int outPos) {
-    int offset = index >>> 3;
+    read32Vector1At(in, index >>> 3, out, outPos);
+  }
+
+  public void read32Vector1At(ByteBuffer in, int offset, int[] out, int outPos) {
     int value = in.getInt(offset);
     IntVector MASK = IntVector.broadcast(I256, 1);
     IntVector.broadcast(I256, value)
@@ -147,7 +1132,10 @@ DictionaryDecoding.vector4  1000000  avgt    5   98.945 ± 0.386  us/op
   }
 
   public void read321(ByteBuffer in, int index, int[] out, int outPos) {
-    int offset = index >>> 3;
+    read321At(in, index >>> 3, out, outPos);
+  }
+
+  public void read321At(ByteBuffer in, int offset, int[] out, int outPos) {
     int i0 = in.getInt(offset);
     out[outPos] = i0 >>> 31;
     out[outPos + 1] = (i0 >>> 30) & 0x1;
@@ -184,7 +1172,10 @@ DictionaryDecoding.vector4  1000000  avgt    5   98.945 ± 0.386  us/op
   }
 
   public void read32Vector2(ByteBuffer in, int index, int[] out, int outPos) {
-    int offset = index >>> 2;
+    read32Vector2At(in, index >>> 2, out, outPos);
+  }
+
+  public void read32Vector2At(ByteBuffer in, int offset, int[] out, int outPos) {
     int i0 = in.getInt(offset);
     int i1 = in.getInt(offset + 4);
     IntVector LSB = IntVector.broadcast(I256, 3);
@@ -208,7 +1199,10 @@ DictionaryDecoding.vector4  1000000  avgt    5   98.945 ± 0.386  us/op
 
 
   public void read322(ByteBuffer in, int index, int[] out, int outPos) {
-    int offset = index >>> 2;
+    read322At(in, index >>> 2, out, outPos);
+  }
+
+  public void read322At(ByteBuffer in, int offset, int[] out, int outPos) {
     int i0 = in.getInt(offset);
     int i1 = in.getInt(offset + 4);
     out[outPos] = i0 >>> 30;
@@ -246,7 +1240,10 @@ DictionaryDecoding.vector4  1000000  avgt    5   98.945 ± 0.386  us/op
   }
 
   public void read32Vector3(ByteBuffer in, int index, int[] out, int outPos) {
-    int offset = (index >>> 3) * 3;
+    read32Vector3At(in, (index >>> 3) * 3, out, outPos);
+  }
+
+  public void read32Vector3At(ByteBuffer in, int offset, int[] out, int outPos) {
     int i0 = in.getInt(offset);
     int i1 = in.getInt(offset + 4);
     int i2 = in.getInt(offset + 8);
@@ -273,7 +1270,10 @@ DictionaryDecoding.vector4  1000000  avgt    5   98.945 ± 0.386  us/op
   }
 
   public void read323(ByteBuffer in, int index, int[] out, int outPos) {
-    int offset = (index >>> 3) * 3;
+    read323At(in, (index >>> 3) * 3, out, outPos);
+  }
+
+  public void read323At(ByteBuffer in, int offset, int[] out, int outPos) {
     int i0 = in.getInt(offset);
     int i1 = in.getInt(offset + 4);
     int i2 = in.getInt(offset + 8);
@@ -315,7 +1315,10 @@ DictionaryDecoding.vector4  1000000  avgt    5   98.945 ± 0.386  us/op
   }
 
   public void read32Vector4(ByteBuffer in, int index, int[] out, int outPos) {
-    int offset = index >>> 1;
+    read32Vector4At(in, index >>> 1, out, outPos);
+  }
+
+  public void read32Vector4At(ByteBuffer in, int offset, int[] out, int outPos) {
     int i0 = in.getInt(offset);
     int i1 = in.getInt(offset + 4);
     int i2 = in.getInt(offset + 8);
@@ -341,7 +1344,10 @@ DictionaryDecoding.vector4  1000000  avgt    5   98.945 ± 0.386  us/op
   }
 
   public void read324(ByteBuffer in, int index, int[] out, int outPos) {
-    int offset = index >>> 1;
+    read324At(in, index >>> 1, out, outPos);
+  }
+
+  public void read324At(ByteBuffer in, int offset, int[] out, int outPos) {
     int i0 = in.getInt(offset);
     int i1 = in.getInt(offset + 4);
     int i2 = in.getInt(offset + 8);
@@ -379,4 +1385,73 @@ DictionaryDecoding.vector4  1000000  avgt    5   98.945 ± 0.386  us/op
     out[outPos + 30] = (i3 >>> 4) & 0xf;
     out[outPos + 31] = i3 & 0xf;
   }
+
+  public void read32Vector1(ByteBuffer in, int index, byte[] out, int outPos) {
+    read32VectorBytes(in, index, out, outPos, 1);
+  }
+
+  public void read32Vector2(ByteBuffer in, int index, byte[] out, int outPos) {
+    read32VectorBytes(in, index, out, outPos, 2);
+  }
+
+  public void read32Vector3(ByteBuffer in, int index, byte[] out, int outPos) {
+    read32VectorBytes(in, index, out, outPos, 3);
+  }
+
+  public void read32Vector4(ByteBuffer in, int index, byte[] out, int outPos) {
+    read32VectorBytes(in, index, out, outPos, 4);
+  }
+
+  public void read32Vector1(ByteBuffer in, int index, short[] out, int outPos) {
+    read32VectorShorts(in, index, out, outPos, 1);
+  }
+
+  public void read32Vector2(ByteBuffer in, int index, short[] out, int outPos) {
+    read32VectorShorts(in, index, out, outPos, 2);
+  }
+
+  public void read32Vector3(ByteBuffer in, int index, short[] out, int outPos) {
+    read32VectorShorts(in, index, out, outPos, 3);
+  }
+
+  public void read32Vector4(ByteBuffer in, int index, short[] out, int outPos) {
+    read32VectorShorts(in, index, out, outPos, 4);
+  }
+
+  private void read32VectorBytes(ByteBuffer in, int index, byte[] out, int outPos, int bitWidth) {
+    var bytes = loadBytes(in, index, bitWidth);
+    unpack16(bytes, 0, bitWidth).intoArray(out, outPos);
+    unpack16(bytes, 16, bitWidth).intoArray(out, outPos + 16);
+  }
+
+  private void read32VectorShorts(ByteBuffer in, int index, short[] out, int outPos, int bitWidth) {
+    var bytes = loadBytes(in, index, bitWidth);
+    ((ShortVector) unpack16(bytes, 0, bitWidth).convertShape(B2S, S256, 0)).intoArray(out, outPos);
+    ((ShortVector) unpack16(bytes, 16, bitWidth).convertShape(B2S, S256, 0)).intoArray(out, outPos + 16);
+  }
+
+  /**
+   * Loads the bitWidth * 4 <= 16 bytes holding 32 values, which may be the last bytes in the buffer.
+   */
+  private ByteVector loadBytes(ByteBuffer in, int index, int bitWidth) {
+    int offset = (index >>> 5) * bitWidth * 4;
+    if (offset + B128.length() <= in.limit()) {
+      return ByteVector.fromByteBuffer(B128, in, offset, ByteOrder.BIG_ENDIAN);
+    }
+    in.get(offset, scratchBytes, 0, bitWidth * 4);
+    return ByteVector.fromArray(B128, scratchBytes, 0);
+  }
+
+  private static ByteVector unpack16(ByteVector bytes, int i, int bitWidth) {
+    var offsets = ByteVector.fromArray(B128, BYTE_OFFSETS[bitWidth], i);
+    var values = bytes.rearrange(ByteVector.fromArray(B128, BYTE_INDEXES[bitWidth], i).toShuffle())
+            .lanewise(LSHL, offsets);
+    if (8 % bitWidth != 0) {
+      // values may straddle two bytes
+      values = values.or(bytes.rearrange(ByteVector.fromArray(B128, NEXT_BYTE_INDEXES[bitWidth], i).toShuffle())
+              .lanewise(LSHR, 1)
+              .lanewise(LSHR, ByteVector.fromArray(B128, BYTE_SPILL_SHIFTS[bitWidth], i)));
+    }
+    return values.lanewise(LSHR, 8 - bitWidth);
+  }
 }
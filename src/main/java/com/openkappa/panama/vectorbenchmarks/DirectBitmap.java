@@ -1,24 +1,54 @@
 package com.openkappa.panama.vectorbenchmarks;
 
+import jdk.incubator.vector.IntVector;
 import jdk.incubator.vector.LongVector;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.concurrent.TimeUnit;
+import java.util.function.LongBinaryOperator;
 
+import static com.openkappa.panama.vectorbenchmarks.Util.I256;
 import static com.openkappa.panama.vectorbenchmarks.Util.L256;
 import static com.openkappa.panama.vectorbenchmarks.Util.newDirectBitmap;
+import static com.openkappa.panama.vectorbenchmarks.Util.newIntBitmap;
+import static jdk.incubator.vector.VectorOperators.AND_NOT;
+import static jdk.incubator.vector.VectorOperators.XOR;
 
 @BenchmarkMode(Mode.Throughput)
 @OutputTimeUnit(TimeUnit.MILLISECONDS)
 @State(Scope.Benchmark)
-@Fork(value = 1, jvmArgsPrepend = {"--add-modules=jdk.incubator.vector"})
+@Fork(value = 1, jvmArgsPrepend = {"--add-modules=jdk.incubator.vector", "-Xmx2g"})
 public class DirectBitmap {
 
+  public static void main(String... args) {
+    for (int size : new int[] {0, 1, 4, 5, 1023, 1024}) {
+      ByteBuffer left = newDirectBitmap(size);
+      ByteBuffer right = newDirectBitmap(size);
+      ByteBuffer result = newDirectBitmap(size);
+      and(left, right, result);
+      check("and", left, right, result, (l, r) -> l & r);
+      or(left, right, result);
+      check("or", left, right, result, (l, r) -> l | r);
+      xor(left, right, result);
+      check("xor", left, right, result, (l, r) -> l ^ r);
+      andNot(left, right, result);
+      check("andNot", left, right, result, (l, r) -> l & ~r);
+      ByteBuffer copy = ByteBuffer.allocateDirect(left.capacity()).order(left.order()).put(left.duplicate());
+      andNot(copy, right, copy);
+      check("andNot in place", left, right, copy, (l, r) -> l & ~r);
+    }
+    System.out.println("ok");
+  }
+
+  private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+
+  // up to 256MB per bitmap
   @Param(
           {
-                  "1024"
+                  "1024", "1048576", "33554432"
           })
   int size;
 
@@ -26,18 +56,174 @@ public class DirectBitmap {
   private ByteBuffer right;
   private ByteBuffer result;
 
+  private int[] heapLeft;
+  private int[] heapRight;
+  private int[] heapResult;
+
   @Setup(Level.Trial)
   public void init() {
     this.left = newDirectBitmap(size);
     this.right = newDirectBitmap(size);
     this.result = newDirectBitmap(size);
+    this.heapLeft = newIntBitmap(size * 2);
+    this.heapRight = newIntBitmap(size * 2);
+    this.heapResult = newIntBitmap(size * 2);
   }
 
   @Benchmark
   public void intersect(Blackhole bh) {
-    for (int i = 0; i < size; ++i) {
+    for (int i = 0; i < size * Long.BYTES; i += Long.BYTES) {
       result.putLong(i, left.getLong(i) & right.getLong(i));
     }
     bh.consume(result);
   }
+
+  @Benchmark
+  public void and(Blackhole bh) {
+    and(left, right, result);
+    bh.consume(result);
+  }
+
+  @Benchmark
+  public void or(Blackhole bh) {
+    or(left, right, result);
+    bh.consume(result);
+  }
+
+  @Benchmark
+  public void xor(Blackhole bh) {
+    xor(left, right, result);
+    bh.consume(result);
+  }
+
+  @Benchmark
+  public void andNot(Blackhole bh) {
+    andNot(left, right, result);
+    bh.consume(result);
+  }
+
+  // the in place variants update result, so the inputs to the other benchmarks don't change
+
+  @Benchmark
+  public void andInPlace(Blackhole bh) {
+    and(result, right, result);
+    bh.consume(result);
+  }
+
+  @Benchmark
+  public void orInPlace(Blackhole bh) {
+    or(result, right, result);
+    bh.consume(result);
+  }
+
+  @Benchmark
+  public void xorInPlace(Blackhole bh) {
+    xor(result, right, result);
+    bh.consume(result);
+  }
+
+  @Benchmark
+  public void andNotInPlace(Blackhole bh) {
+    andNot(result, right, result);
+    bh.consume(result);
+  }
+
+  // the same loops as BitmapLogicals, over heap arrays of the same size in bytes
+
+  @Benchmark
+  public void heapAnd(Blackhole bh) {
+    for (int i = 0; i < heapResult.length; i += I256.length()) {
+      IntVector.fromArray(I256, heapLeft, i).and(IntVector.fromArray(I256, heapRight, i)).intoArray(heapResult, i);
+    }
+    bh.consume(heapResult);
+  }
+
+  @Benchmark
+  public void heapOr(Blackhole bh) {
+    for (int i = 0; i < heapResult.length; i += I256.length()) {
+      IntVector.fromArray(I256, heapLeft, i).or(IntVector.fromArray(I256, heapRight, i)).intoArray(heapResult, i);
+    }
+    bh.consume(heapResult);
+  }
+
+  @Benchmark
+  public void heapXor(Blackhole bh) {
+    for (int i = 0; i < heapResult.length; i += I256.length()) {
+      IntVector.fromArray(I256, heapLeft, i).lanewise(XOR, IntVector.fromArray(I256, heapRight, i)).intoArray(heapResult, i);
+    }
+    bh.consume(heapResult);
+  }
+
+  @Benchmark
+  public void heapAndNot(Blackhole bh) {
+    for (int i = 0; i < heapResult.length; i += I256.length()) {
+      IntVector.fromArray(I256, heapLeft, i).and(IntVector.fromArray(I256, heapRight, i).not()).intoArray(heapResult, i);
+    }
+    bh.consume(heapResult);
+  }
+
+  /**
+   * Writes left & right to result, which may be either of them. The buffers must be the same size,
+   * a whole number of longs, and in native order.
+   */
+  public static void and(ByteBuffer left, ByteBuffer right, ByteBuffer result) {
+    int bound = L256.loopBound(left.capacity() / Long.BYTES) * Long.BYTES;
+    int i = 0;
+    for (; i < bound; i += L256.vectorByteSize()) {
+      LongVector.fromByteBuffer(L256, left, i, ORDER)
+              .and(LongVector.fromByteBuffer(L256, right, i, ORDER))
+              .intoByteBuffer(result, i, ORDER);
+    }
+    for (; i < left.capacity(); i += Long.BYTES) {
+      result.putLong(i, left.getLong(i) & right.getLong(i));
+    }
+  }
+
+  public static void or(ByteBuffer left, ByteBuffer right, ByteBuffer result) {
+    int bound = L256.loopBound(left.capacity() / Long.BYTES) * Long.BYTES;
+    int i = 0;
+    for (; i < bound; i += L256.vectorByteSize()) {
+      LongVector.fromByteBuffer(L256, left, i, ORDER)
+              .or(LongVector.fromByteBuffer(L256, right, i, ORDER))
+              .intoByteBuffer(result, i, ORDER);
+    }
+    for (; i < left.capacity(); i += Long.BYTES) {
+      result.putLong(i, left.getLong(i) | right.getLong(i));
+    }
+  }
+
+  public static void xor(ByteBuffer left, ByteBuffer right, ByteBuffer result) {
+    int bound = L256.loopBound(left.capacity() / Long.BYTES) * Long.BYTES;
+    int i = 0;
+    for (; i < bound; i += L256.vectorByteSize()) {
+      LongVector.fromByteBuffer(L256, left, i, ORDER)
+              .lanewise(XOR, LongVector.fromByteBuffer(L256, right, i, ORDER))
+              .intoByteBuffer(result, i, ORDER);
+    }
+    for (; i < left.capacity(); i += Long.BYTES) {
+      result.putLong(i, left.getLong(i) ^ right.getLong(i));
+    }
+  }
+
+  public static void andNot(ByteBuffer left, ByteBuffer right, ByteBuffer result) {
+    int bound = L256.loopBound(left.capacity() / Long.BYTES) * Long.BYTES;
+    int i = 0;
+    for (; i < bound; i += L256.vectorByteSize()) {
+      LongVector.fromByteBuffer(L256, left, i, ORDER)
+              .lanewise(AND_NOT, LongVector.fromByteBuffer(L256, right, i, ORDER))
+              .intoByteBuffer(result, i, ORDER);
+    }
+    for (; i < left.capacity(); i += Long.BYTES) {
+      result.putLong(i, left.getLong(i) & ~right.getLong(i));
+    }
+  }
+
+  private static void check(String operation, ByteBuffer left, ByteBuffer right, ByteBuffer result,
+                            LongBinaryOperator expected) {
+    for (int i = 0; i < left.capacity(); i += Long.BYTES) {
+      if (result.getLong(i) != expected.applyAsLong(left.getLong(i), right.getLong(i))) {
+        throw new IllegalStateException(operation + " failed at " + i + " of " + left.capacity());
+      }
+    }
+  }
 }
@@ -7,6 +7,7 @@ import org.openjdk.jmh.annotations.*;
 
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.SplittableRandom;
 import java.util.concurrent.TimeUnit;
 
 import static com.openkappa.panama.vectorbenchmarks.Util.*;
@@ -19,37 +20,68 @@ import static jdk.incubator.vector.VectorOperators.*;
          "-XX:-TieredCompilation", "-Djdk.incubator.vector.VECTOR_ACCESS_OOB_CHECK=0"})
 public class PopCount {
 
-  @Param({"1024"})
-  private int size;
-
-
   public static void main(String... args) {
     PopCount benchmark = new PopCount();
-    benchmark.size = 1024;
-    benchmark.init();
-    Arrays.fill(benchmark.data, -1);
-    while (true) {
-      System.out.println(benchmark.scalar());
-      System.out.println(benchmark.vectorBitCount());
-      benchmark.init();
+    BitmapState state = new BitmapState();
+    for (int size : new int[] {0, 1, 63, 64, 65, 256, 1000, 1024, 100_000}) {
+      state.size = size;
+      state.init();
+      for (int trial = 0; trial < 2; ++trial) {
+        int expected = benchmark.scalar(state);
+        if (benchmark.harleySeal(state) != expected || (size % 256 == 0 && benchmark.vectorBitCount(state) != expected)) {
+          throw new IllegalStateException("size=" + size);
+        }
+        int[] naive = new int[64];
+        int[] positional = new int[64];
+        naivePositionalPopCount(state.data, naive);
+        positionalPopCount(state.data, positional);
+        if (!Arrays.equals(naive, positional)) {
+          throw new IllegalStateException("positional popcount failed: size=" + size);
+        }
+        RankSelect index = RankSelect.buildVector(state.data);
+        RankSelect scalarIndex = RankSelect.build(state.data);
+        long bits = (long) size * Long.SIZE;
+        for (long i = 0; i <= bits; i += 1 + (i & 63)) {
+          long rank = naiveRank(state.data, i);
+          if (index.rank(i) != rank || scalarIndex.rank(i) != rank) {
+            throw new IllegalStateException("rank failed: size=" + size + ", i=" + i);
+          }
+        }
+        for (long k = 0; k < index.count(); k += 1 + (k & 31)) {
+          if (index.select(k) != naiveSelect(state.data, k)) {
+            throw new IllegalStateException("select failed: size=" + size + ", k=" + k);
+          }
+        }
+        Arrays.fill(state.data, -1);
+      }
     }
-//    System.out.println(benchmark.harleySeal());
+    System.out.println("ok");
   }
 
-  @Setup(Level.Trial)
-  public void init() {
-    data = newLongBitmap(size);
+  @State(Scope.Benchmark)
+  public static class BitmapState {
+
+    @Param({"1024", "16384", "262144", "4194304", "16777216"})
+    int size;
+
+    long[] data;
+
+    @Setup(Level.Trial)
+    public void init() {
+      data = newLongBitmap(size);
+    }
   }
 
-  private static byte[] NIBBLE_COUNTS = new byte[] {
+  static final byte[] NIBBLE_COUNTS = new byte[] {
           0, 1, 1, 2, 1, 2, 2, 3, 1, 2, 2, 3, 2, 3, 3, 4,
           0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0
   };
 
-  long[] data;
+  private final int[] positions = new int[64];
 
   @Benchmark
-  public int vectorBitCount() {
+  public int vectorBitCount(BitmapState state) {
+    long[] data = state.data;
     int bitCount = 0;
     int block = 256;
     for (int i = 0; i < data.length; i += block) {
@@ -94,22 +126,422 @@ public class PopCount {
             + (((int)(w >>> 56)) & 0xFF);
   }
 
-//  @Benchmark
-//  public int harleySeal() {
-//    return harleySeal(data);
-//  }
+  @Benchmark
+  public int harleySeal(BitmapState state) {
+    return harleySeal(state.data);
+  }
 
 
   @Benchmark
-  public int scalar() {
+  public int scalar(BitmapState state) {
     int bitCount = 0;
-    for (long datum : data) {
+    for (long datum : state.data) {
       bitCount += Long.bitCount(datum);
     }
     return bitCount;
   }
 
 
+  @Benchmark
+  public int[] positionalNaive(BitmapState state) {
+    Arrays.fill(positions, 0);
+    naivePositionalPopCount(state.data, positions);
+    return positions;
+  }
+
+  @Benchmark
+  public int[] positionalHarleySeal(BitmapState state) {
+    Arrays.fill(positions, 0);
+    positionalPopCount(state.data, positions);
+    return positions;
+  }
+
+  public static void naivePositionalPopCount(long[] data, int[] counts) {
+    for (long word : data) {
+      for (int k = 0; k < 64; ++k) {
+        counts[k] += (int) ((word >>> k) & 1);
+      }
+    }
+  }
+
+  /**
+   * Adds to counts[k] the number of longs in data with bit k set. Blocks of 64 longs go through
+   * the same carry-save adder tree as harleySeal, so only the sixteens need to be spread into
+   * positions on every block, and the ones, twos, fours and eights once at the end.
+   */
+  public static void positionalPopCount(long[] data, int[] counts) {
+    var ones = LongVector.zero(L256);
+    var twos = LongVector.zero(L256);
+    var fours = LongVector.zero(L256);
+    var eights = LongVector.zero(L256);
+    LongVector sixteens;
+    LongVector twosA;
+    LongVector twosB;
+    LongVector foursA;
+    LongVector foursB;
+    LongVector eightsA;
+    LongVector eightsB;
+    LongVector a;
+    LongVector b;
+    LongVector u;
+    int i = 0;
+    for (; i + 16 * 4 <= data.length; i += 16 * 4) {
+      a = LongVector.fromArray(L256, data, i + 0 * 4);
+      b = LongVector.fromArray(L256, data, i + 1 * 4);
+      u = ones.lanewise(XOR, a);
+      twosA = ones.and(a).or(u.and(b));
+      ones = u.lanewise(XOR, b);
+      a = LongVector.fromArray(L256, data, i + 2 * 4);
+      b = LongVector.fromArray(L256, data, i + 3 * 4);
+      u = ones.lanewise(XOR, a);
+      twosB = ones.and(a).or(u.and(b));
+      ones = u.lanewise(XOR, b);
+      u = twos.lanewise(XOR, twosA);
+      foursA = twos.and(twosA).or(u.and(twosB));
+      twos = u.lanewise(XOR, twosB);
+      a = LongVector.fromArray(L256, data, i + 4 * 4);
+      b = LongVector.fromArray(L256, data, i + 5 * 4);
+      u = ones.lanewise(XOR, a);
+      twosA = ones.and(a).or(u.and(b));
+      ones = u.lanewise(XOR, b);
+      a = LongVector.fromArray(L256, data, i + 6 * 4);
+      b = LongVector.fromArray(L256, data, i + 7 * 4);
+      u = ones.lanewise(XOR, a);
+      twosB = ones.and(a).or(u.and(b));
+      ones = u.lanewise(XOR, b);
+      u = twos.lanewise(XOR, twosA);
+      foursB = twos.and(twosA).or(u.and(twosB));
+      twos = u.lanewise(XOR, twosB);
+      u = fours.lanewise(XOR, foursA);
+      eightsA = fours.and(foursA).or(u.and(foursB));
+      fours = u.lanewise(XOR, foursB);
+      a = LongVector.fromArray(L256, data, i + 8 * 4);
+      b = LongVector.fromArray(L256, data, i + 9 * 4);
+      u = ones.lanewise(XOR, a);
+      twosA = ones.and(a).or(u.and(b));
+      ones = u.lanewise(XOR, b);
+      a = LongVector.fromArray(L256, data, i + 10 * 4);
+      b = LongVector.fromArray(L256, data, i + 11 * 4);
+      u = ones.lanewise(XOR, a);
+      twosB = ones.and(a).or(u.and(b));
+      ones = u.lanewise(XOR, b);
+      u = twos.lanewise(XOR, twosA);
+      foursA = twos.and(twosA).or(u.and(twosB));
+      twos = u.lanewise(XOR, twosB);
+      a = LongVector.fromArray(L256, data, i + 12 * 4);
+      b = LongVector.fromArray(L256, data, i + 13 * 4);
+      u = ones.lanewise(XOR, a);
+      twosA = ones.and(a).or(u.and(b));
+      ones = u.lanewise(XOR, b);
+      a = LongVector.fromArray(L256, data, i + 14 * 4);
+      b = LongVector.fromArray(L256, data, i + 15 * 4);
+      u = ones.lanewise(XOR, a);
+      twosB = ones.and(a).or(u.and(b));
+      ones = u.lanewise(XOR, b);
+      u = twos.lanewise(XOR, twosA);
+      foursB = twos.and(twosA).or(u.and(twosB));
+      twos = u.lanewise(XOR, twosB);
+      u = fours.lanewise(XOR, foursA);
+      eightsB = fours.and(foursA).or(u.and(foursB));
+      fours = u.lanewise(XOR, foursB);
+      u = eights.lanewise(XOR, eightsA);
+      sixteens = eights.and(eightsA).or(u.and(eightsB));
+      eights = u.lanewise(XOR, eightsB);
+      addPositions(sixteens, 16, counts);
+    }
+    addPositions(eights, 8, counts);
+    addPositions(fours, 4, counts);
+    addPositions(twos, 2, counts);
+    addPositions(ones, 1, counts);
+    // post loop
+    for (; i < data.length; ++i) {
+      addPositions(data[i], 1, counts);
+    }
+  }
+
+  private static void addPositions(LongVector vector, int weight, int[] counts) {
+    for (int lane = 0; lane < L256.length(); ++lane) {
+      addPositions(vector.lane(lane), weight, counts);
+    }
+  }
+
+  private static void addPositions(long word, int weight, int[] counts) {
+    while (word != 0) {
+      counts[Long.numberOfTrailingZeros(word)] += weight;
+      word &= word - 1;
+    }
+  }
+
+  /**
+   * Rank and select over a bitmap with a directory of the set bits before every superblock of
+   * 1024 longs, and before every block of 8 longs relative to its superblock.
+   */
+  public static final class RankSelect {
+
+    private static final int BLOCK_WORDS = 8;
+    private static final int BLOCKS_PER_SUPERBLOCK = 128;
+
+    private final long[] bitmap;
+    private final long[] superblocks;
+    private final char[] blocks;
+    private final long count;
+
+    public static RankSelect build(long[] bitmap) {
+      return new RankSelect(bitmap, false);
+    }
+
+    /**
+     * Counts 4 blocks per reduction with the nibble lookup. Long.bitCount is a single instruction, so
+     * this only wins once the bitmap is too big for the cache: it was about 20% faster than build at
+     * 1M words and 25% slower at 16K.
+     */
+    public static RankSelect buildVector(long[] bitmap) {
+      return new RankSelect(bitmap, true);
+    }
+
+    private RankSelect(long[] bitmap, boolean vectorized) {
+      this.bitmap = bitmap;
+      // one extra block so the position just past the end has an entry
+      int blockCount = bitmap.length / BLOCK_WORDS + 1;
+      this.blocks = new char[blockCount];
+      this.superblocks = new long[(blockCount + BLOCKS_PER_SUPERBLOCK - 1) / BLOCKS_PER_SUPERBLOCK];
+      long[] counts = new long[GROUP_BLOCKS];
+      long total = 0;
+      int block = 0;
+      while (block < blockCount) {
+        int from = block * BLOCK_WORDS;
+        int counted = 1;
+        if (vectorized && from + GROUP_BLOCKS * BLOCK_WORDS <= bitmap.length) {
+          long packed = blockCounts(bitmap, from);
+          for (int i = 0; i < GROUP_BLOCKS; ++i) {
+            counts[i] = (packed >>> (i * 16)) & 0xFFFF;
+          }
+          counted = GROUP_BLOCKS;
+        } else {
+          counts[0] = 0;
+          for (int i = from; i < Math.min(from + BLOCK_WORDS, bitmap.length); ++i) {
+            counts[0] += Long.bitCount(bitmap[i]);
+          }
+        }
+        // superblocks hold a whole number of groups of blocks, so a group never straddles two
+        for (int i = 0; i < counted; ++i, ++block) {
+          if (block % BLOCKS_PER_SUPERBLOCK == 0) {
+            superblocks[block / BLOCKS_PER_SUPERBLOCK] = total;
+          }
+          blocks[block] = (char) (total - superblocks[block / BLOCKS_PER_SUPERBLOCK]);
+          total += counts[i];
+        }
+      }
+      this.count = total;
+    }
+
+    // blocks counted at once, one per 16 bit field of a long
+    private static final int GROUP_BLOCKS = 4;
+
+    /**
+     * @return the bit counts of the 4 blocks starting at from, packed 16 bits apart. Each lane's share
+     * of a block is at most 128, so the shares of all four blocks can be shifted into their own field
+     * and added, and one reduction over the lanes finishes all four.
+     */
+    private static long blockCounts(long[] bitmap, int from) {
+      var counts = ByteVector.fromArray(B256, NIBBLE_COUNTS, 0);
+      var packed = LongVector.zero(L256);
+      for (int i = 0; i < GROUP_BLOCKS; ++i) {
+        int block = from + i * BLOCK_WORDS;
+        packed = packed.add(sumBytes(byteCounts(counts, bitmap, block), byteCounts(counts, bitmap, block + 4))
+                .lanewise(LSHL, i * 16));
+      }
+      return packed.reduceLanes(ADD);
+    }
+
+    private static ByteVector byteCounts(ByteVector counts, long[] bitmap, int from) {
+      var bytes = LongVector.fromArray(L256, bitmap, from).reinterpretAsBytes();
+      return counts.rearrange(bytes.and((byte) 0x0F).toShuffle())
+              .add(counts.rearrange(bytes.lanewise(LSHR, 4).toShuffle()));
+    }
+
+    /**
+     * @return the sum of the byte counts of both vectors in each long, which is at most 128
+     */
+    private static LongVector sumBytes(ByteVector first, ByteVector second) {
+      var words = first.add(second).reinterpretAsLongs();
+      var sums = words.and(0x00FF00FF00FF00FFL).add(words.lanewise(LSHR, 8).and(0x00FF00FF00FF00FFL));
+      sums = sums.add(sums.lanewise(LSHR, 16));
+      return sums.add(sums.lanewise(LSHR, 32)).and(0xFFFF);
+    }
+
+    public long count() {
+      return count;
+    }
+
+    /**
+     * @return the number of set bits before position i, for i up to the length of the bitmap in bits
+     */
+    public long rank(long i) {
+      int word = (int) (i >>> 6);
+      int block = word / BLOCK_WORDS;
+      long rank = superblocks[block / BLOCKS_PER_SUPERBLOCK] + blocks[block];
+      for (int w = block * BLOCK_WORDS; w < word; ++w) {
+        rank += Long.bitCount(bitmap[w]);
+      }
+      if ((i & 63) != 0) {
+        rank += Long.bitCount(bitmap[word] & ((1L << i) - 1));
+      }
+      return rank;
+    }
+
+    /**
+     * @return the position of the set bit with rank k, for k less than count()
+     */
+    public long select(long k) {
+      // the last superblock and then the last block in it with no more than k bits before it
+      int low = 0;
+      int high = superblocks.length - 1;
+      while (low < high) {
+        int middle = (low + high + 1) >>> 1;
+        if (superblocks[middle] <= k) {
+          low = middle;
+        } else {
+          high = middle - 1;
+        }
+      }
+      long remaining = k - superblocks[low];
+      int first = low * BLOCKS_PER_SUPERBLOCK;
+      high = Math.min(first + BLOCKS_PER_SUPERBLOCK, blocks.length) - 1;
+      low = first;
+      while (low < high) {
+        int middle = (low + high + 1) >>> 1;
+        if (blocks[middle] <= remaining) {
+          low = middle;
+        } else {
+          high = middle - 1;
+        }
+      }
+      remaining -= blocks[low];
+      for (int w = low * BLOCK_WORDS; ; ++w) {
+        int bitCount = Long.bitCount(bitmap[w]);
+        if (remaining < bitCount) {
+          return ((long) w << 6) + selectInWord(bitmap[w], (int) remaining);
+        }
+        remaining -= bitCount;
+      }
+    }
+  }
+
+  private static final int QUERIES = 256;
+
+  @State(Scope.Benchmark)
+  public static class RankSelectState {
+
+    @Param({"16384", "1048576"})
+    int words;
+
+    long[] bitmap;
+    RankSelect index;
+    long[] positions;
+    long[] ranks;
+
+    @Setup(Level.Trial)
+    public void init() {
+      SplittableRandom random = new SplittableRandom(0);
+      bitmap = newLongBitmap(words);
+      index = RankSelect.build(bitmap);
+      positions = new long[QUERIES];
+      ranks = new long[QUERIES];
+      for (int i = 0; i < QUERIES; ++i) {
+        positions[i] = random.nextLong((long) words * Long.SIZE + 1);
+        ranks[i] = random.nextLong(index.count());
+      }
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  public RankSelect buildVector(RankSelectState state) {
+    return RankSelect.buildVector(state.bitmap);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  public RankSelect buildScalar(RankSelectState state) {
+    return RankSelect.build(state.bitmap);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OperationsPerInvocation(QUERIES)
+  public long rank(RankSelectState state) {
+    long sum = 0;
+    for (long position : state.positions) {
+      sum += state.index.rank(position);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OperationsPerInvocation(QUERIES)
+  public long rankNaive(RankSelectState state) {
+    long sum = 0;
+    for (long position : state.positions) {
+      sum += naiveRank(state.bitmap, position);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OperationsPerInvocation(QUERIES)
+  public long select(RankSelectState state) {
+    long sum = 0;
+    for (long rank : state.ranks) {
+      sum += state.index.select(rank);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OperationsPerInvocation(QUERIES)
+  public long selectNaive(RankSelectState state) {
+    long sum = 0;
+    for (long rank : state.ranks) {
+      sum += naiveSelect(state.bitmap, rank);
+    }
+    return sum;
+  }
+
+  public static long naiveRank(long[] bitmap, long i) {
+    int word = (int) (i >>> 6);
+    long rank = 0;
+    for (int w = 0; w < word; ++w) {
+      rank += Long.bitCount(bitmap[w]);
+    }
+    if ((i & 63) != 0) {
+      rank += Long.bitCount(bitmap[word] & ((1L << i) - 1));
+    }
+    return rank;
+  }
+
+  public static long naiveSelect(long[] bitmap, long k) {
+    long remaining = k;
+    for (int w = 0; w < bitmap.length; ++w) {
+      int bitCount = Long.bitCount(bitmap[w]);
+      if (remaining < bitCount) {
+        return ((long) w << 6) + selectInWord(bitmap[w], (int) remaining);
+      }
+      remaining -= bitCount;
+    }
+    return -1;
+  }
+
+  private static int selectInWord(long word, int k) {
+    for (int i = 0; i < k; ++i) {
+      word &= word - 1;
+    }
+    return Long.numberOfTrailingZeros(word);
+  }
+
   public int harleySeal(long[] data) {
     var total = LongVector.zero(L256);
     var ones = LongVector.zero(L256);
@@ -123,7 +555,8 @@ public class PopCount {
     LongVector foursB;
     LongVector eightsA;
     LongVector eightsB;
-    for (int i = 0; i < data.length >>> 2; i += 16 * 4) {
+    int i = 0;
+    for (; i + 16 * 4 <= data.length; i += 16 * 4) {
       var a1 = LongVector.fromArray(L256, data, i);
       var b1 = ones;
       var c1 = LongVector.fromArray(L256, data, i + 1 * 4);
@@ -221,38 +654,25 @@ public class PopCount {
     total = total.add(popcount256(fours).lanewise(LSHL,2));
     total = total.add(popcount256(twos).lanewise(LSHL,1));
     total = total.add(popcount256(ones));
-    return (int)total.reduceLanes(ADD);
+    int bitCount = (int)total.reduceLanes(ADD);
+    // post loop
+    for (; i < data.length; ++i) {
+      bitCount += Long.bitCount(data[i]);
+    }
+    return bitCount;
   }
 
-  private LongVector popcount256(LongVector vector) {
+  private static LongVector popcount256(LongVector vector) {
     var bytes = (ByteVector)vector.reinterpretAsBytes();
-    var lookupPos = ByteVector.fromArray(B256, LOOKUP_POS, 0);
-    var lookupNeg = ByteVector.fromArray(B256, LOOKUP_NEG, 0);
+    var counts = ByteVector.fromArray(B256, NIBBLE_COUNTS, 0);
     var lowMask = ByteVector.broadcast(B256, (byte)0x0F);
-    return (LongVector)lookupPos.rearrange(bytes.and(lowMask).toShuffle())
-            .add(lookupNeg.rearrange(bytes.lanewise(LSHR, 4).and(lowMask).toShuffle()))
+    var byteCounts = (LongVector)counts.rearrange(bytes.and(lowMask).toShuffle())
+            .add(counts.rearrange(bytes.lanewise(LSHR, 4).toShuffle()))
             .reinterpretAsLongs();
+    // sum the eight byte counts in each long, none can exceed 64
+    var sums = byteCounts.and(0x00FF00FF00FF00FFL).add(byteCounts.lanewise(LSHR, 8).and(0x00FF00FF00FF00FFL));
+    sums = sums.add(sums.lanewise(LSHR, 16));
+    sums = sums.add(sums.lanewise(LSHR, 32));
+    return sums.and(0xFFFF);
   }
-
-  private static byte[] LOOKUP_POS = new byte[] {
-          /* 0 */ 4 + 0, /* 1 */ 4 + 1, /* 2 */ 4 + 1, /* 3 */ 4 + 2,
-          /* 4 */ 4 + 1, /* 5 */ 4 + 2, /* 6 */ 4 + 2, /* 7 */ 4 + 3,
-          /* 8 */ 4 + 1, /* 9 */ 4 + 2, /* a */ 4 + 2, /* b */ 4 + 3,
-          /* c */ 4 + 2, /* d */ 4 + 3, /* e */ 4 + 3, /* f */ 4 + 4,
-          /* 0 */ 4 + 0, /* 1 */ 4 + 1, /* 2 */ 4 + 1, /* 3 */ 4 + 2,
-          /* 4 */ 4 + 1, /* 5 */ 4 + 2, /* 6 */ 4 + 2, /* 7 */ 4 + 3,
-          /* 8 */ 4 + 1, /* 9 */ 4 + 2, /* a */ 4 + 2, /* b */ 4 + 3,
-          /* c */ 4 + 2, /* d */ 4 + 3, /* e */ 4 + 3, /* f */ 4 + 4
-  };
-
-  private static byte[] LOOKUP_NEG = new byte[] {
-          /* 0 */ 4 - 0, /* 1 */ 4 - 1, /* 2 */ 4 - 1, /* 3 */ 4 - 2,
-          /* 4 */ 4 - 1, /* 5 */ 4 - 2, /* 6 */ 4 - 2, /* 7 */ 4 - 3,
-          /* 8 */ 4 - 1, /* 9 */ 4 - 2, /* a */ 4 - 2, /* b */ 4 - 3,
-          /* c */ 4 - 2, /* d */ 4 - 3, /* e */ 4 - 3, /* f */ 4 - 4,
-          /* 0 */ 4 - 0, /* 1 */ 4 - 1, /* 2 */ 4 - 1, /* 3 */ 4 - 2,
-          /* 4 */ 4 - 1, /* 5 */ 4 - 2, /* 6 */ 4 - 2, /* 7 */ 4 - 3,
-          /* 8 */ 4 - 1, /* 9 */ 4 - 2, /* a */ 4 - 2, /* b */ 4 - 3,
-          /* c */ 4 - 2, /* d */ 4 - 3, /* e */ 4 - 3, /* f */ 4 - 4
-  };
 }
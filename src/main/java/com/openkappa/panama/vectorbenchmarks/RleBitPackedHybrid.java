@@ -0,0 +1,334 @@
+package com.openkappa.panama.vectorbenchmarks;
+
+import jdk.incubator.vector.IntVector;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.openkappa.panama.vectorbenchmarks.Util.I256;
+
+/**
+ * Parquet's RLE/bit-packed hybrid encoding: a varint header whose low bit says whether
+ * a run follows as a repeated value (count << 1, then the value in ceil(bitWidth / 8)
+ * little endian bytes) or as bit-packed groups (groups << 1 | 1, then the groups).
+ * Parquet packs groups of 8 values from the least significant bit, which decodeParquet reads
+ * 32 values at a time. decode reads a variant whose groups are 32 values in the layout
+ * DictionaryDecoding reads, most significant bit first, so the read32 kernels decode them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsPrepend = {"--add-modules=jdk.incubator.vector"})
+public class RleBitPackedHybrid {
+
+  // runs shorter than this are bit-packed
+  private static final int MIN_REPEATED_RUN = 8;
+
+  public static void main(String... args) {
+    RleBitPackedHybrid hybrid = new RleBitPackedHybrid();
+    hybrid.count = 100_000;
+    for (int bitWidth : new int[] {1, 2, 3, 4, 5, 8, 12, 17, 20, 32}) {
+      for (int averageRunLength : new int[] {1, 8, 64, 1024}) {
+        hybrid.bitWidth = bitWidth;
+        hybrid.averageRunLength = averageRunLength;
+        hybrid.init();
+        hybrid.vector();
+        int[] vector = Arrays.copyOf(hybrid.decoded, hybrid.count);
+        hybrid.scalar();
+        int[] scalar = Arrays.copyOf(hybrid.decoded, hybrid.count);
+        hybrid.parquetVector();
+        int[] parquetVector = Arrays.copyOf(hybrid.decoded, hybrid.count);
+        hybrid.parquetScalar();
+        int[] parquetScalar = Arrays.copyOf(hybrid.decoded, hybrid.count);
+        if (!Arrays.equals(hybrid.values, vector) || !Arrays.equals(hybrid.values, scalar)
+                || !Arrays.equals(hybrid.values, parquetVector) || !Arrays.equals(hybrid.values, parquetScalar)) {
+          throw new IllegalStateException("bitWidth=" + bitWidth + ", averageRunLength=" + averageRunLength);
+        }
+        System.out.println("bitWidth=" + bitWidth + ", averageRunLength=" + averageRunLength
+                + ": " + hybrid.encoded.limit() + " bytes, parquet " + hybrid.parquet.limit() + " bytes");
+      }
+    }
+    // from the Parquet encoding spec: 0 to 7 at bit width 3 are the bytes 10001000 11000110 11111010,
+    // here after a run of ten 5s
+    byte[] spec = {0x14, 0x05, 0x03, (byte) 0x88, (byte) 0xC6, (byte) 0xFA};
+    int[] expected = {5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 0, 1, 2, 3, 4, 5, 6, 7};
+    if (!hybrid.encodeParquet(expected, expected.length, 3).equals(ByteBuffer.wrap(spec))) {
+      throw new IllegalStateException("encodeParquet");
+    }
+    int[] out = new int[expected.length + 32];
+    hybrid.decodeParquet(ByteBuffer.wrap(spec), 3, out, expected.length);
+    if (!Arrays.equals(expected, Arrays.copyOf(out, expected.length))) {
+      throw new IllegalStateException("decodeParquet " + Arrays.toString(out));
+    }
+    hybrid.decodeParquetScalar(ByteBuffer.wrap(spec), 3, out, expected.length);
+    if (!Arrays.equals(expected, Arrays.copyOf(out, expected.length))) {
+      throw new IllegalStateException("decodeParquetScalar " + Arrays.toString(out));
+    }
+  }
+
+  @Param({"4", "12", "20"})
+  int bitWidth;
+
+  @Param({"1", "8", "64", "1024"})
+  int averageRunLength;
+
+  @Param("1048576")
+  int count;
+
+  private final DictionaryDecoding kernels = new DictionaryDecoding();
+  private int[] values;
+  private ByteBuffer encoded;
+  private ByteBuffer parquet;
+  private int[] decoded;
+
+  @Setup(Level.Trial)
+  public void init() {
+    SplittableRandom random = new SplittableRandom(0);
+    values = new int[count];
+    int i = 0;
+    while (i < count) {
+      // geometrically distributed run lengths
+      int length = 1 + (int) (Math.log(1 - random.nextDouble()) * -(averageRunLength - 1));
+      int value = (int) (random.nextLong() & ((1L << bitWidth) - 1));
+      Arrays.fill(values, i, Math.min(count, i + length), value);
+      i += length;
+    }
+    encoded = encode(values, count, bitWidth);
+    parquet = encodeParquet(values, count, bitWidth);
+    decoded = new int[count + 32];
+  }
+
+  @Benchmark
+  public int[] vector() {
+    decode(encoded, bitWidth, decoded, count);
+    return decoded;
+  }
+
+  @Benchmark
+  public int[] scalar() {
+    decodeScalar(encoded, bitWidth, decoded, count);
+    return decoded;
+  }
+
+  @Benchmark
+  public int[] parquetVector() {
+    decodeParquet(parquet, bitWidth, decoded, count);
+    return decoded;
+  }
+
+  @Benchmark
+  public int[] parquetScalar() {
+    decodeParquetScalar(parquet, bitWidth, decoded, count);
+    return decoded;
+  }
+
+  /**
+   * Writes count values into out, which needs 32 values of slack because the last
+   * bit-packed group is always decoded in full.
+   */
+  public void decode(ByteBuffer in, int bitWidth, int[] out, int count) {
+    int position = 0;
+    int i = 0;
+    while (i < count) {
+      int header = readVarInt(in, position);
+      position += varIntLength(header);
+      if ((header & 1) == 0) {
+        int length = header >>> 1;
+        i = fill(out, i, length, readRepeatedValue(in, position, bitWidth));
+        position += (bitWidth + 7) >>> 3;
+      } else {
+        int groups = header >>> 1;
+        for (int g = 0; g < groups; ++g, i += 32, position += bitWidth * 4) {
+          switch (bitWidth) {
+            case 1: kernels.read32Vector1At(in, position, out, i); break;
+            case 2: kernels.read32Vector2At(in, position, out, i); break;
+            case 3: kernels.read32Vector3At(in, position, out, i); break;
+            case 4: kernels.read32Vector4At(in, position, out, i); break;
+            default: kernels.read32VectorAt(in, position, out, i, bitWidth); break;
+          }
+        }
+      }
+    }
+  }
+
+  public void decodeScalar(ByteBuffer in, int bitWidth, int[] out, int count) {
+    int position = 0;
+    int i = 0;
+    while (i < count) {
+      int header = readVarInt(in, position);
+      position += varIntLength(header);
+      if ((header & 1) == 0) {
+        int length = header >>> 1;
+        int value = readRepeatedValue(in, position, bitWidth);
+        position += (bitWidth + 7) >>> 3;
+        Arrays.fill(out, i, i + length, value);
+        i += length;
+      } else {
+        int groups = header >>> 1;
+        for (int g = 0; g < groups; ++g, i += 32, position += bitWidth * 4) {
+          switch (bitWidth) {
+            case 1: kernels.read321At(in, position, out, i); break;
+            case 2: kernels.read322At(in, position, out, i); break;
+            case 3: kernels.read323At(in, position, out, i); break;
+            case 4: kernels.read324At(in, position, out, i); break;
+            default: kernels.read32At(in, position, out, i, bitWidth); break;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Decodes Parquet's layout, where a bit-packed run is groups of 8 values in bitWidth bytes each.
+   * Writes count values into out, which needs 8 values of slack because the last group is always
+   * decoded in full.
+   */
+  public void decodeParquet(ByteBuffer in, int bitWidth, int[] out, int count) {
+    int position = 0;
+    int i = 0;
+    while (i < count) {
+      int header = readVarInt(in, position);
+      position += varIntLength(header);
+      if ((header & 1) == 0) {
+        int length = header >>> 1;
+        i = fill(out, i, length, readRepeatedValue(in, position, bitWidth));
+        position += (bitWidth + 7) >>> 3;
+      } else {
+        int end = position + (header >>> 1) * bitWidth;
+        // 4 groups of 8 values are bitWidth whole ints
+        for (; position + bitWidth * 4 <= end; i += 32, position += bitWidth * 4) {
+          kernels.readParquet32VectorAt(in, position, out, i, bitWidth);
+        }
+        for (; position < end; i += 8, position += bitWidth) {
+          kernels.readParquet8At(in, position, out, i, bitWidth);
+        }
+      }
+    }
+  }
+
+  public void decodeParquetScalar(ByteBuffer in, int bitWidth, int[] out, int count) {
+    int position = 0;
+    int i = 0;
+    while (i < count) {
+      int header = readVarInt(in, position);
+      position += varIntLength(header);
+      if ((header & 1) == 0) {
+        int length = header >>> 1;
+        int value = readRepeatedValue(in, position, bitWidth);
+        position += (bitWidth + 7) >>> 3;
+        Arrays.fill(out, i, i + length, value);
+        i += length;
+      } else {
+        int end = position + (header >>> 1) * bitWidth;
+        for (; position + bitWidth * 4 <= end; i += 32, position += bitWidth * 4) {
+          kernels.readParquet32At(in, position, out, i, bitWidth);
+        }
+        for (; position < end; i += 8, position += bitWidth) {
+          kernels.readParquet8At(in, position, out, i, bitWidth);
+        }
+      }
+    }
+  }
+
+  public ByteBuffer encode(int[] values, int count, int bitWidth) {
+    return encode(values, count, bitWidth, 32);
+  }
+
+  public ByteBuffer encodeParquet(int[] values, int count, int bitWidth) {
+    return encode(values, count, bitWidth, 8);
+  }
+
+  private ByteBuffer encode(int[] values, int count, int bitWidth, int groupSize) {
+    // worst case is a header per group plus every value at 32 bits
+    ByteBuffer out = ByteBuffer.allocateDirect(count * 4 + (count / groupSize + 1) * 5 + 32 * 4);
+    int[] group = new int[groupSize];
+    int position = 0;
+    int i = 0;
+    while (i < count) {
+      int length = runLength(values, i, count);
+      if (length >= MIN_REPEATED_RUN) {
+        position = writeVarInt(out, position, length << 1);
+        for (int b = 0; b < (bitWidth + 7) >>> 3; ++b) {
+          out.put(position++, (byte) (values[i] >>> (b * 8)));
+        }
+        i += length;
+      } else {
+        // bit-pack groups until a long enough run starts at a group boundary
+        int start = i;
+        int groups = 0;
+        do {
+          i += groupSize;
+          ++groups;
+        } while (i < count && runLength(values, i, count) < MIN_REPEATED_RUN);
+        position = writeVarInt(out, position, groups << 1 | 1);
+        for (int g = 0; g < groups; ++g, position += groupSize * bitWidth / 8) {
+          int from = start + g * groupSize;
+          Arrays.fill(group, 0);
+          System.arraycopy(values, from, group, 0, Math.min(groupSize, count - from));
+          if (groupSize == 32) {
+            kernels.write32At(group, 0, out, position, bitWidth);
+          } else {
+            kernels.writeParquet8At(group, 0, out, position, bitWidth);
+          }
+        }
+      }
+    }
+    return out.limit(position);
+  }
+
+  private static int fill(int[] out, int i, int length, int value) {
+    var repeated = IntVector.broadcast(I256, value);
+    int end = i + length;
+    for (; i + I256.length() <= end; i += I256.length()) {
+      repeated.intoArray(out, i);
+    }
+    for (; i < end; ++i) {
+      out[i] = value;
+    }
+    return i;
+  }
+
+  private static int runLength(int[] values, int i, int count) {
+    int end = i + 1;
+    while (end < count && values[end] == values[i]) {
+      ++end;
+    }
+    return end - i;
+  }
+
+  private static int readRepeatedValue(ByteBuffer in, int position, int bitWidth) {
+    int value = 0;
+    for (int b = 0; b < (bitWidth + 7) >>> 3; ++b) {
+      value |= (in.get(position + b) & 0xFF) << (b * 8);
+    }
+    return value;
+  }
+
+  private static int readVarInt(ByteBuffer in, int position) {
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = in.get(position++);
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+
+  private static int varIntLength(int value) {
+    return Math.max(1, (38 - Integer.numberOfLeadingZeros(value)) / 7);
+  }
+
+  private static int writeVarInt(ByteBuffer out, int position, int value) {
+    while ((value & ~0x7F) != 0) {
+      out.put(position++, (byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.put(position++, (byte) value);
+    return position;
+  }
+}
@@ -5,117 +5,1008 @@ import jdk.incubator.vector.ByteVector;
 import jdk.incubator.vector.IntVector;
 import org.openjdk.jmh.annotations.*;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
 import static com.openkappa.panama.vectorbenchmarks.Util.B128;
+import static com.openkappa.panama.vectorbenchmarks.Util.B256;
 import static com.openkappa.panama.vectorbenchmarks.Util.I128;
 import static com.openkappa.panama.vectorbenchmarks.Util.S128;
+import static jdk.incubator.vector.VectorOperators.*;
 
 @BenchmarkMode(Mode.Throughput)
-@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
 @Fork(value = 1, jvmArgsPrepend = {"--add-modules=jdk.incubator.vector",
          "-XX:-TieredCompilation", "-Djdk.incubator.vector.VECTOR_ACCESS_OOB_CHECK=0"})
 public class StreamVByte {
 
-  static long scalarEncode(int[] in,
-                           byte[] keys,
-                           byte[] data,
-                           int index,
-                           int keyIndex,
-                           int count) {
+  private static final int SIZE = 4096;
+
+  static final int BLOCK_SIZE = 256;
+
+  // a multiple of 4 so that chunks never share a key byte
+  static final int PARALLEL_CHUNK_SIZE = 1 << 16;
+
+  public static void main(String... args) throws IOException {
+    SplittableRandom random = new SplittableRandom(0);
+    for (int maxBits : new int[] {0, 1, 8, 16, 24, 32}) {
+      for (int count : new int[] {0, 1, 3, 4, 5, 15, 16, 17, 255, 256, 257, 4099}) {
+        int[] in = newValues(random, count, maxBits);
+        byte[] encoded = new byte[maxEncodedLength(count)];
+        int length = streamVByteEncode0124(in, 0, count, encoded, 0);
+        int[] vector = new int[count];
+        int[] scalar = new int[count];
+        int vectorLength = streamVByteDecode0124(encoded, 0, count, vector, 0);
+        int scalarLength = scalarDecode0124(encoded, 0, count, scalar, 0);
+        if (vectorLength != length || scalarLength != length
+                || !Arrays.equals(in, vector) || !Arrays.equals(in, scalar)) {
+          throw new IllegalStateException("round trip failed: maxBits=" + maxBits + ", count=" + count);
+        }
+      }
+    }
+    for (int averageGap : new int[] {1, 8, 64, 1024}) {
+      for (int count : new int[] {0, 1, 3, 4, 5, 15, 16, 17, 255, 256, 257, 4099}) {
+        int[] in = Util.newSortedIntArray(count, Math.max(count, 1) * averageGap);
+        byte[] encoded = new byte[maxEncodedLength(count)];
+        int length = streamVByteDeltaEncode0124(in, 0, count, encoded, 0, 0);
+        int[] vector = new int[count];
+        int[] scalar = new int[count];
+        int vectorLength = streamVByteDeltaDecode0124(encoded, 0, count, vector, 0, 0);
+        int scalarLength = scalarDeltaDecode0124(encoded, 0, count, scalar, 0, 0);
+        if (vectorLength != length || scalarLength != length
+                || !Arrays.equals(in, vector) || !Arrays.equals(in, scalar)) {
+          throw new IllegalStateException("delta round trip failed: averageGap=" + averageGap + ", count=" + count);
+        }
+        if (count == 4099) {
+          System.out.println("averageGap=" + averageGap + ": "
+                  + streamVByteEncode0124(in, 0, count, encoded, 0) + " bytes raw, "
+                  + length + " bytes delta");
+        }
+      }
+    }
+    for (int count : new int[] {1, 255, 256, 257, 1000, 4099}) {
+      int[] in = Util.newSortedIntArray(count, count * 64);
+      int blocks = blockCount(count);
+      byte[] encoded = new byte[maxEncodedBlocksLength(count)];
+      int[] blockOffsets = new int[blocks];
+      int[] firstValues = new int[blocks];
+      int[] buffer = new int[BLOCK_SIZE];
+      streamVByteEncodeBlocks0124(in, count, encoded, blockOffsets, firstValues);
+      for (int i = 0; i < count; ++i) {
+        if (streamVByteGet0124(encoded, blockOffsets, count, i) != in[i]) {
+          throw new IllegalStateException("blocked get failed: count=" + count + ", index=" + i);
+        }
+      }
+      for (int b = 0; b < blocks; ++b) {
+        int keyCount = (Math.min(BLOCK_SIZE, count - b * BLOCK_SIZE) + 3) >>> 2;
+        if (dataLength0124(encoded, blockOffsets[b], keyCount) != scalarDataLength0124(encoded, blockOffsets[b], keyCount)) {
+          throw new IllegalStateException("data length failed: count=" + count + ", block=" + b);
+        }
+      }
+      for (int target = -1; target <= in[count - 1] + 1; target += 7) {
+        int expected = 0;
+        while (expected < count && in[expected] < target) {
+          ++expected;
+        }
+        if (streamVByteSkipTo0124(encoded, blockOffsets, firstValues, count, target, buffer) != expected) {
+          throw new IllegalStateException("skip to failed: count=" + count + ", target=" + target);
+        }
+      }
+    }
+    ForkJoinPool pool = new ForkJoinPool(4);
+    for (int count : new int[] {0, 1, 5, PARALLEL_CHUNK_SIZE - 1, PARALLEL_CHUNK_SIZE, 3 * PARALLEL_CHUNK_SIZE + 7}) {
+      int[] in = newValues(random, count, 32);
+      byte[] sequential = new byte[maxEncodedLength(count)];
+      byte[] parallel = new byte[maxEncodedLength(count)];
+      int length = streamVByteEncode0124(in, 0, count, sequential, 0);
+      if (parallelStreamVByteEncode0124(pool, in, count, parallel, new byte[count * Integer.BYTES]) != length
+              || !Arrays.equals(sequential, 0, length, parallel, 0, length)) {
+        throw new IllegalStateException("parallel encoding failed: count=" + count);
+      }
+    }
+    pool.shutdown();
+    for (int count : new int[] {0, 1, 5, 17, 4099}) {
+      int[] in = newValues(random, count, 32);
+      byte[] heap = new byte[maxEncodedLength(count)];
+      ByteBuffer direct = ByteBuffer.allocateDirect(maxEncodedLength(count));
+      int length = streamVByteEncode0124(in, 0, count, heap, 0);
+      int[] vector = new int[count];
+      int[] scalar = new int[count];
+      if (streamVByteEncode0124(in, 0, count, direct, 0) != length
+              || !direct.slice(0, length).equals(ByteBuffer.wrap(heap, 0, length))
+              || streamVByteDecode0124(direct.limit(length), 0, count, vector, 0) != length
+              || scalarDecode0124(direct, 0, count, scalar, 0) != length
+              || !Arrays.equals(in, vector) || !Arrays.equals(in, scalar)) {
+        throw new IllegalStateException("off heap round trip failed: count=" + count);
+      }
+    }
+    System.out.println("round trip ok");
+  }
+
+  @State(Scope.Benchmark)
+  public static class RandomState {
+
+    @Param({"8", "16", "32"})
+    int maxBits;
+
+    int[] values;
+    byte[] encoded;
+    int[] decoded;
+
+    @Setup(Level.Trial)
+    public void init() {
+      values = newValues(new SplittableRandom(0), SIZE, maxBits);
+      encoded = new byte[maxEncodedLength(SIZE)];
+      decoded = new int[SIZE];
+      streamVByteEncode0124(values, 0, SIZE, encoded, 0);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class DocIdState {
+
+    @Param({"1", "8", "64", "1024"})
+    int averageGap;
+
+    int[] docIds;
+    byte[] encoded;
+    byte[] deltaEncoded;
+    int[] decoded;
+
+    @Setup(Level.Trial)
+    public void init() {
+      docIds = Util.newSortedIntArray(SIZE, SIZE * averageGap);
+      encoded = new byte[maxEncodedLength(SIZE)];
+      deltaEncoded = new byte[maxEncodedLength(SIZE)];
+      decoded = new int[SIZE];
+      streamVByteEncode0124(docIds, 0, SIZE, encoded, 0);
+      streamVByteDeltaEncode0124(docIds, 0, SIZE, deltaEncoded, 0, 0);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public int[] decodeVector(RandomState state) {
+    streamVByteDecode0124(state.encoded, 0, SIZE, state.decoded, 0);
+    return state.decoded;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public int[] decodeScalar(RandomState state) {
+    scalarDecode0124(state.encoded, 0, SIZE, state.decoded, 0);
+    return state.decoded;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public int[] docIdDecodeVector(DocIdState state) {
+    streamVByteDecode0124(state.encoded, 0, SIZE, state.decoded, 0);
+    return state.decoded;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public int[] docIdDeltaDecodeVector(DocIdState state) {
+    streamVByteDeltaDecode0124(state.deltaEncoded, 0, SIZE, state.decoded, 0, 0);
+    return state.decoded;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public int[] docIdDeltaDecodeScalar(DocIdState state) {
+    scalarDeltaDecode0124(state.deltaEncoded, 0, SIZE, state.decoded, 0, 0);
+    return state.decoded;
+  }
+
+  @State(Scope.Benchmark)
+  public static class BlockState {
+
+    @Param({"65536", "1048576"})
+    int count;
+
+    int[] docIds;
+    byte[] encoded;
+    byte[] blockEncoded;
+    int[] blockOffsets;
+    int[] firstValues;
+    int[] decoded;
+    int[] buffer;
+
+    int[] indexes;
+    int[] targets;
+    private int i;
+
+    @Setup(Level.Trial)
+    public void init() {
+      docIds = Util.newSortedIntArray(count, count * 64);
+      encoded = new byte[maxEncodedLength(count)];
+      streamVByteEncode0124(docIds, 0, count, encoded, 0);
+      blockEncoded = new byte[maxEncodedBlocksLength(count)];
+      blockOffsets = new int[blockCount(count)];
+      firstValues = new int[blockCount(count)];
+      streamVByteEncodeBlocks0124(docIds, count, blockEncoded, blockOffsets, firstValues);
+      decoded = new int[count];
+      buffer = new int[BLOCK_SIZE];
+      SplittableRandom random = new SplittableRandom(0);
+      indexes = new int[1024];
+      targets = new int[1024];
+      for (int j = 0; j < indexes.length; ++j) {
+        indexes[j] = random.nextInt(count);
+        targets[j] = docIds[random.nextInt(count)];
+      }
+    }
+
+    int nextIndex() {
+      return indexes[i++ & (indexes.length - 1)];
+    }
+
+    int nextTarget() {
+      return targets[i++ & (targets.length - 1)];
+    }
+  }
+
+  @Benchmark
+  public int getLinear(BlockState state) {
+    int index = state.nextIndex();
+    streamVByteDecode0124(state.encoded, 0, index + 1, state.decoded, 0);
+    return state.decoded[index];
+  }
+
+  @Benchmark
+  public int getBlocked(BlockState state) {
+    return streamVByteGet0124(state.blockEncoded, state.blockOffsets, state.count, state.nextIndex());
+  }
+
+  @Benchmark
+  public int skipToBlocked(BlockState state) {
+    return streamVByteSkipTo0124(state.blockEncoded, state.blockOffsets, state.firstValues, state.count,
+            state.nextTarget(), state.buffer);
+  }
+
+  @Benchmark
+  public int dataLengthVector(BlockState state) {
+    int block = state.nextIndex() / BLOCK_SIZE;
+    return dataLength0124(state.blockEncoded, state.blockOffsets[block], BLOCK_SIZE / 4);
+  }
+
+  @Benchmark
+  public int dataLengthScalar(BlockState state) {
+    int block = state.nextIndex() / BLOCK_SIZE;
+    return scalarDataLength0124(state.blockEncoded, state.blockOffsets[block], BLOCK_SIZE / 4);
+  }
+
+  @State(Scope.Benchmark)
+  public static class ParallelState {
+
+    @Param({"1048576", "16777216"})
+    int count;
+
+    @Param({"1", "2", "4", "8"})
+    int threads;
+
+    ForkJoinPool pool;
+    int[] values;
+    byte[] encoded;
+    byte[] scratch;
+
+    @Setup(Level.Trial)
+    public void init() {
+      pool = new ForkJoinPool(threads);
+      values = newValues(new SplittableRandom(0), count, 32);
+      encoded = new byte[maxEncodedLength(count)];
+      scratch = new byte[count * Integer.BYTES];
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+      pool.shutdown();
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public int encodeSequential(ParallelState state) {
+    return streamVByteEncode0124(state.values, 0, state.count, state.encoded, 0);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public int encodeParallel(ParallelState state) {
+    return parallelStreamVByteEncode0124(state.pool, state.values, state.count, state.encoded, state.scratch);
+  }
+
+  private static final int OFF_HEAP_SIZE = 1 << 20;
+
+  @State(Scope.Benchmark)
+  public static class OffHeapState {
+
+    @Param({"direct", "mapped"})
+    String source;
+
+    Path file;
+    FileChannel channel;
+    ByteBuffer encoded;
+    int length;
+    byte[] heap;
+    int[] decoded;
+
+    @Setup(Level.Trial)
+    public void init() throws IOException {
+      int[] values = newValues(new SplittableRandom(0), OFF_HEAP_SIZE, 32);
+      if ("mapped".equals(source)) {
+        file = Files.createTempFile("streamvbyte", ".bin");
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        encoded = channel.map(FileChannel.MapMode.READ_WRITE, 0, maxEncodedLength(OFF_HEAP_SIZE));
+      } else {
+        encoded = ByteBuffer.allocateDirect(maxEncodedLength(OFF_HEAP_SIZE));
+      }
+      length = streamVByteEncode0124(values, 0, OFF_HEAP_SIZE, encoded, 0);
+      heap = new byte[maxEncodedLength(OFF_HEAP_SIZE)];
+      decoded = new int[OFF_HEAP_SIZE];
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+      if (channel != null) {
+        channel.close();
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(OFF_HEAP_SIZE)
+  public int[] decodeCopyToHeap(OffHeapState state) {
+    state.encoded.get(0, state.heap, 0, state.length);
+    streamVByteDecode0124(state.heap, 0, OFF_HEAP_SIZE, state.decoded, 0);
+    return state.decoded;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(OFF_HEAP_SIZE)
+  public int[] decodeOffHeapVector(OffHeapState state) {
+    streamVByteDecode0124(state.encoded, 0, OFF_HEAP_SIZE, state.decoded, 0);
+    return state.decoded;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(OFF_HEAP_SIZE)
+  public int[] decodeOffHeapScalar(OffHeapState state) {
+    scalarDecode0124(state.encoded, 0, OFF_HEAP_SIZE, state.decoded, 0);
+    return state.decoded;
+  }
+
+  private static int[] newValues(SplittableRandom random, int count, int maxBits) {
+    int[] values = new int[count];
+    for (int i = 0; i < count; ++i) {
+      int bits = random.nextInt(maxBits + 1);
+      values[i] = bits == 0 ? 0 : random.nextInt() >>> (32 - bits);
+    }
+    return values;
+  }
+
+  static int maxEncodedLength(int count) {
+    return ((count + 3) >>> 2) + count * Integer.BYTES;
+  }
+
+  static int scalarEncode0124(int[] in, int i,
+                              byte[] keys, int ki,
+                              byte[] data, int di,
+                              int count) {
     if (count > 0) {
 
-      byte shift = 0; // cycles 0, 2, 4, 6, 0, 2, 4, 6, ...
-      byte key = 0;
+      int shift = 0; // cycles 0, 2, 4, 6, 0, 2, 4, 6, ...
+      int key = 0;
       for (int c = 0; c < count; c++) {
         if (shift == 8) {
           shift = 0;
-          keys[keyIndex++] = key;
+          keys[ki++] = (byte) key;
           key = 0;
         }
-        int val = in[c];
-        byte code;
-        if (val < (1 << 8)) { // 1 byte
-          data[index++] = (byte) (val);
+        int val = in[i + c];
+        int code;
+        if (val == 0) { // 0 bytes
           code = 0;
-        } else if (val < (1 << 16)) { // 2 bytes
-          data[index++] = (byte) (val & 0xFF);   // assumes little endian
-          data[index++] = (byte) ((val >>> 8) & 0xFF);
+        } else if ((val & 0xFFFFFF00) == 0) { // 1 byte
+          data[di++] = (byte) (val);
           code = 1;
-        } else if (val < (1 << 24)) { // 3 bytes
-          data[index++] = (byte) (val & 0xFF);   // assumes little endian
-          data[index++] = (byte) ((val >>> 8) & 0xFF);
-          data[index++] = (byte) ((val >>> 16) & 0xFF);
+        } else if ((val & 0xFFFF0000) == 0) { // 2 bytes
+          data[di++] = (byte) (val & 0xFF);   // assumes little endian
+          data[di++] = (byte) ((val >>> 8) & 0xFF);
           code = 2;
         } else { // 4 bytes
-          data[index++] = (byte) (val & 0xFF);   // assumes little endian
-          data[index++] = (byte) ((val >>> 8) & 0xFF);
-          data[index++] = (byte) ((val >>> 16) & 0xFF);
-          data[index++] = (byte) ((val >>> 24) & 0xFF);
+          data[di++] = (byte) (val & 0xFF);   // assumes little endian
+          data[di++] = (byte) ((val >>> 8) & 0xFF);
+          data[di++] = (byte) ((val >>> 16) & 0xFF);
+          data[di++] = (byte) ((val >>> 24) & 0xFF);
           code = 3;
         }
         key |= code << shift;
         shift += 2;
       }
-      keys[keyIndex] = key;  // write last key (no increment needed)
-    }
-    return index | ((long) keyIndex << 32); // position of first unused data byte packed with position of first unused key
-  }
-
-
-  static int streamVByteEncode4(ByteVector in,
-                                 byte[] data, int di,
-                                 byte[] keys, int ki) {
-    var ones = IntVector.broadcast(I128, 0x01010101).reinterpretAsBytes();
-    var gatherBits = IntVector.broadcast(I128, 0x08040102)
-            .reinterpretAsShorts();
-    var codeTable = IntVector.fromArray(I128, new int[]{0x03030303, 0x03030303, 0x03030303, 0x02020100}, 0)
-            .reinterpretAsBytes();
-    var gatherBytes = IntVector.fromArray(I128, new int[]{0, 0, 0x0D090501, 0x0D090501}, 0)
-            .reinterpretAsBytes();
-    var aggregators = IntVector.fromArray(I128, new int[]{0, 0, 0x01010101, 0x10400104}, 0)
-            .reinterpretAsShorts();
-
-    // in general wrong because there are no unsigned types, but correct some of the time
-    var m1 = (ByteVector) in.min(ones)
-               .reinterpretAsShorts()
-               .add(gatherBits)
-               .reinterpretAsBytes()
-               .rearrange(codeTable.toShuffle())
-               .rearrange(gatherBytes.toShuffle())
-               .reinterpretAsShorts()
-               .add(aggregators)
-               .reinterpretAsBytes();
-
-    int code = m1.lane(1) & 0xFF;
+      keys[ki] = (byte) key;  // write last key (no increment needed)
+    }
+    return di; // position of first unused data byte
+  }
+
+  static int scalarDecode0124(byte[] keys, int ki,
+                              byte[] data, int di,
+                              int[] out, int i,
+                              int count) {
+    int shift = 0;
+    for (int c = 0; c < count; c++) {
+      if (shift == 8) {
+        shift = 0;
+        ki++;
+      }
+      int code = (keys[ki] >>> shift) & 0x3;
+      int val;
+      if (code == 0) { // 0 bytes
+        val = 0;
+      } else if (code == 1) { // 1 byte
+        val = data[di++] & 0xFF;
+      } else if (code == 2) { // 2 bytes
+        val = (data[di++] & 0xFF)
+            | (data[di++] & 0xFF) << 8;
+      } else { // 4 bytes
+        val = (data[di++] & 0xFF)
+            | (data[di++] & 0xFF) << 8
+            | (data[di++] & 0xFF) << 16
+            | (data[di++] & 0xFF) << 24;
+      }
+      out[i + c] = val;
+      shift += 2;
+    }
+    return di; // position of first unused data byte
+  }
+
+  static int streamVByteEncode4(IntVector in,
+                                byte[] data, int di,
+                                byte[] keys, int ki) {
+    // 0 for zero, then 1, 2 or 3 depending on whether the value needs 1, 2 or 4 bytes
+    int code = IntVector.zero(I128)
+            .lanewise(ADD, 1, in.compare(NE, 0))
+            .lanewise(ADD, 1, in.compare(UNSIGNED_GE, 1 << 8))
+            .lanewise(ADD, 1, in.compare(UNSIGNED_GE, 1 << 16))
+            .lanewise(LSHL, IntVector.fromArray(I128, KEY_SHIFTS, 0))
+            .reduceLanes(OR);
     int length = LENGTH_TABLE[code];
     var shuffle = ByteVector.fromArray(B128, ENCODING_SHUFFLE_TABLE, code * 16).toShuffle();
-    in.rearrange(shuffle).intoArray(data, di);
+    in.reinterpretAsBytes().rearrange(shuffle, shuffle.laneIsValid()).intoArray(data, di);
     keys[ki] = (byte)code;
     return length;
   }
 
   static int streamVByteEncodeQuad(int[] in, int ii, byte[] out, int oi, byte[] keys, int ki) {
-    return streamVByteEncode4((ByteVector) IntVector.fromArray(I128, in, ii).reinterpretAsBytes(), out, oi, keys, ki);
+    return streamVByteEncode4(IntVector.fromArray(I128, in, ii), out, oi, keys, ki);
+  }
+
+  static int streamVByteDecode4(byte[] data, int di,
+                                byte key,
+                                int[] out, int oi) {
+    int code = key & 0xFF;
+    var shuffle = ByteVector.fromArray(B128, DECODING_SHUFFLE_TABLE, code * 16).toShuffle();
+    ByteVector.fromArray(B128, data, di)
+            .rearrange(shuffle, shuffle.laneIsValid())
+            .reinterpretAsInts()
+            .intoArray(out, oi);
+    return LENGTH_TABLE[code];
+  }
+
+
+  /**
+   * Writes the keys followed by the data into out, which must have space for
+   * maxEncodedLength(count) bytes from o because each quad is stored 16 bytes at a time.
+   * @return the number of bytes used
+   */
+  static int streamVByteEncode0124(int[] in, int i, int count, byte[] out, int o) {
+    int keyLen = (count + 3) >>> 2;  // 2-bits rounded to full byte
+    return streamVByteEncode0124(in, i, count, out, o, out, o + keyLen) - o;
+  }
+
+  /**
+   * Writes the keys and the data to separate places, the data needing space for 4 * count bytes.
+   * @return the position of the first unused data byte
+   */
+  static int streamVByteEncode0124(int[] in, int i, int count,
+                                   byte[] keys, int ki,
+                                   byte[] data, int di) {
+    int countQuads = count >>> 2;
+    count -= 4 * countQuads;
+    for (int c = 0; c < countQuads; c++) {
+      di += streamVByteEncodeQuad(in, i, data, di, keys, ki);
+      ki++;
+      i += 4;
+    }
+    return scalarEncode0124(in, i, keys, ki, data, di, count);
+  }
+
+  /**
+   * Produces the same output as streamVByteEncode0124 by encoding chunks of PARALLEL_CHUNK_SIZE
+   * values on the pool. The keys of each chunk go straight to their final position, whereas the
+   * data goes to the chunk's own region of scratch, which needs 4 * count bytes, until a prefix
+   * sum of the chunks' data lengths says where to copy it.
+   * @return the number of bytes used
+   */
+  static int parallelStreamVByteEncode0124(ForkJoinPool pool, int[] in, int count, byte[] out, byte[] scratch) {
+    int keyLen = (count + 3) >>> 2;
+    int chunks = (count + PARALLEL_CHUNK_SIZE - 1) / PARALLEL_CHUNK_SIZE;
+    int[] dataLengths = new int[chunks];
+    var tasks = new ArrayList<ForkJoinTask<?>>(chunks);
+    for (int c = 0; c < chunks; ++c) {
+      int chunk = c;
+      tasks.add(pool.submit(() -> {
+        int i = chunk * PARALLEL_CHUNK_SIZE;
+        int di = i * Integer.BYTES;
+        dataLengths[chunk] = streamVByteEncode0124(in, i, Math.min(PARALLEL_CHUNK_SIZE, count - i),
+                out, i >>> 2, scratch, di) - di;
+      }));
+    }
+    for (var task : tasks) {
+      task.join();
+    }
+    int[] dataOffsets = new int[chunks];
+    int offset = keyLen;
+    for (int c = 0; c < chunks; ++c) {
+      dataOffsets[c] = offset;
+      offset += dataLengths[c];
+    }
+    tasks.clear();
+    for (int c = 0; c < chunks; ++c) {
+      int chunk = c;
+      tasks.add(pool.submit(() -> System.arraycopy(scratch, chunk * PARALLEL_CHUNK_SIZE * Integer.BYTES,
+              out, dataOffsets[chunk], dataLengths[chunk])));
+    }
+    for (var task : tasks) {
+      task.join();
+    }
+    return offset;
+  }
+
+  /**
+   * @return the number of bytes consumed
+   */
+  static int streamVByteDecode0124(byte[] in, int o, int count, int[] out, int i) {
+    byte[] keys = in;
+    int keyLen = (count + 3) >>> 2;
+    byte[] data = in;
+
+    int countQuads = count >>> 2;
+    int ki = o;
+    int di = o + keyLen;
+    int c = 0;
+    // each quad loads 16 bytes, so finish with the scalar decoder near the end of the input
+    for (; c < countQuads && di + 16 <= data.length; c++) {
+      di += streamVByteDecode4(data, di, keys[ki], out, i);
+      ki++;
+      i += 4;
+    }
+    return scalarDecode0124(keys, ki, data, di, out, i, count - 4 * c) - o;
+  }
+
+  static int scalarDecode0124(byte[] in, int o, int count, int[] out, int i) {
+    int keyLen = (count + 3) >>> 2;
+    return scalarDecode0124(in, o, in, o + keyLen, out, i, count) - o;
+  }
+
+  static int scalarEncode0124(int[] in, int i,
+                              ByteBuffer out, int ki, int di,
+                              int count) {
+    if (count > 0) {
+
+      int shift = 0; // cycles 0, 2, 4, 6, 0, 2, 4, 6, ...
+      int key = 0;
+      for (int c = 0; c < count; c++) {
+        if (shift == 8) {
+          shift = 0;
+          out.put(ki++, (byte) key);
+          key = 0;
+        }
+        int val = in[i + c];
+        int code;
+        if (val == 0) { // 0 bytes
+          code = 0;
+        } else if ((val & 0xFFFFFF00) == 0) { // 1 byte
+          out.put(di++, (byte) (val));
+          code = 1;
+        } else if ((val & 0xFFFF0000) == 0) { // 2 bytes
+          out.put(di++, (byte) (val & 0xFF));   // assumes little endian
+          out.put(di++, (byte) ((val >>> 8) & 0xFF));
+          code = 2;
+        } else { // 4 bytes
+          out.put(di++, (byte) (val & 0xFF));   // assumes little endian
+          out.put(di++, (byte) ((val >>> 8) & 0xFF));
+          out.put(di++, (byte) ((val >>> 16) & 0xFF));
+          out.put(di++, (byte) ((val >>> 24) & 0xFF));
+          code = 3;
+        }
+        key |= code << shift;
+        shift += 2;
+      }
+      out.put(ki, (byte) key);  // write last key (no increment needed)
+    }
+    return di; // position of first unused data byte
   }
 
+  static int scalarDecode0124(ByteBuffer in, int ki, int di,
+                              int[] out, int i,
+                              int count) {
+    int shift = 0;
+    for (int c = 0; c < count; c++) {
+      if (shift == 8) {
+        shift = 0;
+        ki++;
+      }
+      int code = (in.get(ki) >>> shift) & 0x3;
+      int val;
+      if (code == 0) { // 0 bytes
+        val = 0;
+      } else if (code == 1) { // 1 byte
+        val = in.get(di++) & 0xFF;
+      } else if (code == 2) { // 2 bytes
+        val = (in.get(di++) & 0xFF)
+            | (in.get(di++) & 0xFF) << 8;
+      } else { // 4 bytes
+        val = (in.get(di++) & 0xFF)
+            | (in.get(di++) & 0xFF) << 8
+            | (in.get(di++) & 0xFF) << 16
+            | (in.get(di++) & 0xFF) << 24;
+      }
+      out[i + c] = val;
+      shift += 2;
+    }
+    return di; // position of first unused data byte
+  }
 
-  long streamVByteEncode0124(int[] in, int i, int count, byte[] out, int o) {
+  static int streamVByteEncode4(IntVector in,
+                                ByteBuffer out, int di, int ki) {
+    // 0 for zero, then 1, 2 or 3 depending on whether the value needs 1, 2 or 4 bytes
+    int code = IntVector.zero(I128)
+            .lanewise(ADD, 1, in.compare(NE, 0))
+            .lanewise(ADD, 1, in.compare(UNSIGNED_GE, 1 << 8))
+            .lanewise(ADD, 1, in.compare(UNSIGNED_GE, 1 << 16))
+            .lanewise(LSHL, IntVector.fromArray(I128, KEY_SHIFTS, 0))
+            .reduceLanes(OR);
+    int length = LENGTH_TABLE[code];
+    var shuffle = ByteVector.fromArray(B128, ENCODING_SHUFFLE_TABLE, code * 16).toShuffle();
+    in.reinterpretAsBytes().rearrange(shuffle, shuffle.laneIsValid()).intoByteBuffer(out, di, ByteOrder.LITTLE_ENDIAN);
+    out.put(ki, (byte)code);
+    return length;
+  }
+
+  static int streamVByteDecode4(ByteBuffer in, int di,
+                                byte key,
+                                int[] out, int oi) {
+    int code = key & 0xFF;
+    var shuffle = ByteVector.fromArray(B128, DECODING_SHUFFLE_TABLE, code * 16).toShuffle();
+    ByteVector.fromByteBuffer(B128, in, di, ByteOrder.LITTLE_ENDIAN)
+            .rearrange(shuffle, shuffle.laneIsValid())
+            .reinterpretAsInts()
+            .intoArray(out, oi);
+    return LENGTH_TABLE[code];
+  }
+
+  /**
+   * Encodes into a direct or mapped buffer at absolute position o, without touching its position,
+   * with the same layout and space requirements as streamVByteEncode0124.
+   * @return the number of bytes used
+   */
+  static int streamVByteEncode0124(int[] in, int i, int count, ByteBuffer out, int o) {
+    int keyLen = (count + 3) >>> 2;  // 2-bits rounded to full byte
+
+    int countQuads = count >>> 2;
+    count -= 4 * countQuads;
+    int ki = o;
+    int di = o + keyLen;
+    for (int c = 0; c < countQuads; c++) {
+      di += streamVByteEncode4(IntVector.fromArray(I128, in, i), out, di, ki);
+      ki++;
+      i += 4;
+    }
+    return scalarEncode0124(in, i, out, ki, di, count) - o;
+  }
+
+  /**
+   * Decodes from a direct or mapped buffer at absolute position o, without copying it to the heap.
+   * @return the number of bytes consumed
+   */
+  static int streamVByteDecode0124(ByteBuffer in, int o, int count, int[] out, int i) {
+    int keyLen = (count + 3) >>> 2;
+
+    int countQuads = count >>> 2;
+    int ki = o;
+    int di = o + keyLen;
+    int c = 0;
+    // each quad loads 16 bytes, so finish with the scalar decoder near the end of the input
+    for (; c < countQuads && di + 16 <= in.limit(); c++) {
+      di += streamVByteDecode4(in, di, in.get(ki), out, i);
+      ki++;
+      i += 4;
+    }
+    return scalarDecode0124(in, ki, di, out, i, count - 4 * c) - o;
+  }
+
+  static int scalarDecode0124(ByteBuffer in, int o, int count, int[] out, int i) {
+    int keyLen = (count + 3) >>> 2;
+    return scalarDecode0124(in, o, o + keyLen, out, i, count) - o;
+  }
+
+  static int scalarDeltaEncode0124(int[] in, int i,
+                                   byte[] keys, int ki,
+                                   byte[] data, int di,
+                                   int count, int prev) {
+    if (count > 0) {
+
+      int shift = 0; // cycles 0, 2, 4, 6, 0, 2, 4, 6, ...
+      int key = 0;
+      for (int c = 0; c < count; c++) {
+        if (shift == 8) {
+          shift = 0;
+          keys[ki++] = (byte) key;
+          key = 0;
+        }
+        int val = in[i + c] - prev;
+        prev = in[i + c];
+        int code;
+        if (val == 0) { // 0 bytes
+          code = 0;
+        } else if ((val & 0xFFFFFF00) == 0) { // 1 byte
+          data[di++] = (byte) (val);
+          code = 1;
+        } else if ((val & 0xFFFF0000) == 0) { // 2 bytes
+          data[di++] = (byte) (val & 0xFF);   // assumes little endian
+          data[di++] = (byte) ((val >>> 8) & 0xFF);
+          code = 2;
+        } else { // 4 bytes
+          data[di++] = (byte) (val & 0xFF);   // assumes little endian
+          data[di++] = (byte) ((val >>> 8) & 0xFF);
+          data[di++] = (byte) ((val >>> 16) & 0xFF);
+          data[di++] = (byte) ((val >>> 24) & 0xFF);
+          code = 3;
+        }
+        key |= code << shift;
+        shift += 2;
+      }
+      keys[ki] = (byte) key;  // write last key (no increment needed)
+    }
+    return di; // position of first unused data byte
+  }
+
+  static int scalarDeltaDecode0124(byte[] keys, int ki,
+                                   byte[] data, int di,
+                                   int[] out, int i,
+                                   int count, int prev) {
+    di = scalarDecode0124(keys, ki, data, di, out, i, count);
+    for (int c = 0; c < count; c++) {
+      prev += out[i + c];
+      out[i + c] = prev;
+    }
+    return di;
+  }
+
+  static int streamVByteDeltaEncode4(IntVector in, int prev,
+                                     byte[] data, int di,
+                                     byte[] keys, int ki) {
+    // [prev, in[0], in[1], in[2]]
+    var previous = IntVector.broadcast(I128, prev).slice(3, in);
+    return streamVByteEncode4(in.sub(previous), data, di, keys, ki);
+  }
+
+  static int streamVByteDeltaDecode4(byte[] data, int di,
+                                     byte key,
+                                     int[] out, int oi,
+                                     int prev) {
+    int code = key & 0xFF;
+    var shuffle = ByteVector.fromArray(B128, DECODING_SHUFFLE_TABLE, code * 16).toShuffle();
+    var gaps = ByteVector.fromArray(B128, data, di)
+            .rearrange(shuffle, shuffle.laneIsValid())
+            .reinterpretAsInts();
+    // inclusive prefix sum in two steps: add the lanes shifted up by one, then by two
+    var sums = gaps.add(gaps.unslice(1));
+    sums = sums.add(sums.unslice(2));
+    sums.add(prev).intoArray(out, oi);
+    return LENGTH_TABLE[code];
+  }
+
+  /**
+   * Encodes the gaps between consecutive values of a sorted sequence, the first
+   * relative to prev, with the same layout and space requirements as streamVByteEncode0124.
+   * @return the number of bytes used
+   */
+  static int streamVByteDeltaEncode0124(int[] in, int i, int count, byte[] out, int o, int prev) {
     byte[] keys = out;
-    int keyLen = (count + 3) >>> 4;  // 2-bits rounded to full byte
+    int keyLen = (count + 3) >>> 2;  // 2-bits rounded to full byte
     byte[] data = out;
 
-    int countQuads = count >>> 4;
+    int countQuads = count >>> 2;
     count -= 4 * countQuads;
     int ki = o;
-    int di = 0 + keyLen;
+    int di = o + keyLen;
     for (int c = 0; c < countQuads; c++) {
-      ki += streamVByteEncodeQuad(in, i, data, o + keyLen,  keys, o);
+      di += streamVByteDeltaEncode4(IntVector.fromArray(I128, in, i), prev, data, di, keys, ki);
+      prev = in[i + 3];
       ki++;
       i += 4;
     }
-    return scalarEncode(in, keys, data, i, ki, count) - di;
+    return scalarDeltaEncode0124(in, i, keys, ki, data, di, count, prev) - o;
+  }
+
+  /**
+   * @return the number of bytes consumed
+   */
+  static int streamVByteDeltaDecode0124(byte[] in, int o, int count, int[] out, int i, int prev) {
+    byte[] keys = in;
+    int keyLen = (count + 3) >>> 2;
+    byte[] data = in;
+
+    int countQuads = count >>> 2;
+    int ki = o;
+    int di = o + keyLen;
+    int c = 0;
+    // each quad loads 16 bytes, so finish with the scalar decoder near the end of the input
+    for (; c < countQuads && di + 16 <= data.length; c++) {
+      di += streamVByteDeltaDecode4(data, di, keys[ki], out, i, prev);
+      prev = out[i + 3];
+      ki++;
+      i += 4;
+    }
+    return scalarDeltaDecode0124(keys, ki, data, di, out, i, count - 4 * c, prev) - o;
+  }
+
+  static int scalarDeltaDecode0124(byte[] in, int o, int count, int[] out, int i, int prev) {
+    int keyLen = (count + 3) >>> 2;
+    return scalarDeltaDecode0124(in, o, in, o + keyLen, out, i, count, prev) - o;
+  }
+
+  static int maxEncodedBlocksLength(int count) {
+    return (count / BLOCK_SIZE) * maxEncodedLength(BLOCK_SIZE) + maxEncodedLength(count % BLOCK_SIZE);
+  }
+
+  static int blockCount(int count) {
+    return (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+  }
+
+  /**
+   * Sums LENGTH_TABLE over keyCount keys, which is the number of data bytes they describe.
+   */
+  static int dataLength0124(byte[] keys, int ki, int keyCount) {
+    var twoBits = ByteVector.broadcast(B256, (byte) 0x33);
+    var lowBits = ByteVector.broadcast(B256, (byte) 0x55);
+    var lowNibble = ByteVector.broadcast(B256, (byte) 0x0F);
+    var lanes = ByteVector.fromArray(B256, LANE_INDEXES, 0);
+    int length = 0;
+    for (int k = 0; k < keyCount; k += B256.length()) {
+      // masked loads are slow, so load whole vectors when in bounds and zero the lanes past keyCount
+      var key = ki + k + B256.length() <= keys.length
+              ? ByteVector.fromArray(B256, keys, ki + k)
+                  .blend(0, lanes.compare(GE, Math.min(keyCount - k, B256.length())))
+              : ByteVector.fromArray(B256, keys, ki + k, B256.indexInRange(k, keyCount));
+      // LENGTH_TABLE[key] is the sum of the four codes plus one for each code of 3 (4 bytes)
+      var codes = key.and(twoBits).add(key.lanewise(LSHR, 2).and(twoBits));
+      var fours = key.and(key.lanewise(LSHR, 1)).and(lowBits);
+      fours = fours.add(fours.lanewise(LSHR, 2)).and(twoBits);
+      var lengths = codes.add(fours);
+      lengths = lengths.and(lowNibble).add(lengths.lanewise(LSHR, 4));
+      // each lane is at most 16, so adjacent pairs fit in a short and 16 shorts cannot overflow
+      var pairs = lengths.reinterpretAsShorts();
+      length += pairs.and((short) 0xFF).add(pairs.lanewise(LSHR, 8)).reduceLanes(ADD);
+    }
+    return length;
+  }
+
+  static int scalarDataLength0124(byte[] keys, int ki, int keyCount) {
+    int length = 0;
+    for (int k = 0; k < keyCount; ++k) {
+      length += LENGTH_TABLE[keys[ki + k] & 0xFF];
+    }
+    return length;
+  }
+
+  /**
+   * Encodes every BLOCK_SIZE values as an independent streamVByteEncode0124 stream, recording
+   * the offset of each block in blockOffsets and its first value in firstValues, so a block
+   * can be located and decoded without decoding the blocks before it.
+   * out needs space for maxEncodedBlocksLength(count) bytes.
+   * @return the number of bytes used
+   */
+  static int streamVByteEncodeBlocks0124(int[] in, int count, byte[] out, int[] blockOffsets, int[] firstValues) {
+    int o = 0;
+    for (int b = 0, i = 0; i < count; ++b, i += BLOCK_SIZE) {
+      blockOffsets[b] = o;
+      firstValues[b] = in[i];
+      o += streamVByteEncode0124(in, i, Math.min(BLOCK_SIZE, count - i), out, o);
+    }
+    return o;
   }
 
+  /**
+   * @return the number of values decoded
+   */
+  static int streamVByteDecodeBlock0124(byte[] in, int[] blockOffsets, int count, int block, int[] out, int i) {
+    int blockCount = Math.min(BLOCK_SIZE, count - block * BLOCK_SIZE);
+    streamVByteDecode0124(in, blockOffsets[block], blockCount, out, i);
+    return blockCount;
+  }
+
+  static int streamVByteGet0124(byte[] in, int[] blockOffsets, int count, int index) {
+    int block = index / BLOCK_SIZE;
+    int position = index % BLOCK_SIZE;
+    int o = blockOffsets[block];
+    int keyLen = (Math.min(BLOCK_SIZE, count - block * BLOCK_SIZE) + 3) >>> 2;
+    int key = in[o + (position >>> 2)] & 0xFF;
+    int shift = (position & 3) << 1;
+    // whole keys before the position, then the codes preceding it in its own key
+    int di = o + keyLen
+            + dataLength0124(in, o, position >>> 2)
+            + LENGTH_TABLE[key & ((1 << shift) - 1)];
+    int code = (key >>> shift) & 0x3;
+    if (code == 0) { // 0 bytes
+      return 0;
+    } else if (code == 1) { // 1 byte
+      return in[di] & 0xFF;
+    } else if (code == 2) { // 2 bytes
+      return (in[di] & 0xFF)
+           | (in[di + 1] & 0xFF) << 8;
+    } else { // 4 bytes
+      return (in[di] & 0xFF)
+           | (in[di + 1] & 0xFF) << 8
+           | (in[di + 2] & 0xFF) << 16
+           | (in[di + 3] & 0xFF) << 24;
+    }
+  }
 
+  /**
+   * Finds the first value not less than target in a sorted blocked stream by searching
+   * firstValues and decoding a single block into buffer, which needs BLOCK_SIZE space.
+   * @return the index of the value, or count if there is none
+   */
+  static int streamVByteSkipTo0124(byte[] in, int[] blockOffsets, int[] firstValues, int count,
+                                   int target, int[] buffer) {
+    // the first block starting at or after the target
+    int low = 0;
+    int high = blockCount(count);
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (firstValues[mid] < target) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    if (low == 0) {
+      return 0;
+    }
+    // otherwise the answer is in the block before it, or is the first value of that block
+    int block = low - 1;
+    int blockCount = streamVByteDecodeBlock0124(in, blockOffsets, count, block, buffer, 0);
+    for (int i = 0; i < blockCount; ++i) {
+      if (buffer[i] >= target) {
+        return block * BLOCK_SIZE + i;
+      }
+    }
+    return Math.min(count, low * BLOCK_SIZE);
+  }
+
+    static byte[] LANE_INDEXES = new byte[] {
+       0,  1,  2,  3,  4,  5,  6,  7,  8,  9, 10, 11, 12, 13, 14, 15,
+      16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31
+    };
+
+    static int[] KEY_SHIFTS = new int[] {0, 2, 4, 6};
 
     // using 0,1,2,4 bytes per value
     static byte[] LENGTH_TABLE = new byte[] {
@@ -397,5 +1288,263 @@ public class StreamVByte {
         0,  1,  2,  3,  4,  5,  6,  7,  8,  9, 10, 11, 12, 13, 14, 15     // 3333
     };
 
-
+// decoding:
+    static byte[] DECODING_SHUFFLE_TABLE = new byte[] {
+       -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,    // 0000
+        0, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,    // 1000
+        0,  1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,    // 2000
+        0,  1,  2,  3, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,    // 3000
+       -1, -1, -1, -1,  0, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,    // 0100
+        0, -1, -1, -1,  1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,    // 1100
+        0,  1, -1, -1,  2, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,    // 2100
+        0,  1,  2,  3,  4, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,    // 3100
+       -1, -1, -1, -1,  0,  1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,    // 0200
+        0, -1, -1, -1,  1,  2, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,    // 1200
+        0,  1, -1, -1,  2,  3, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,    // 2200
+        0,  1,  2,  3,  4,  5, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,    // 3200
+       -1, -1, -1, -1,  0,  1,  2,  3, -1, -1, -1, -1, -1, -1, -1, -1,    // 0300
+        0, -1, -1, -1,  1,  2,  3,  4, -1, -1, -1, -1, -1, -1, -1, -1,    // 1300
+        0,  1, -1, -1,  2,  3,  4,  5, -1, -1, -1, -1, -1, -1, -1, -1,    // 2300
+        0,  1,  2,  3,  4,  5,  6,  7, -1, -1, -1, -1, -1, -1, -1, -1,    // 3300
+       -1, -1, -1, -1, -1, -1, -1, -1,  0, -1, -1, -1, -1, -1, -1, -1,    // 0010
+        0, -1, -1, -1, -1, -1, -1, -1,  1, -1, -1, -1, -1, -1, -1, -1,    // 1010
+        0,  1, -1, -1, -1, -1, -1, -1,  2, -1, -1, -1, -1, -1, -1, -1,    // 2010
+        0,  1,  2,  3, -1, -1, -1, -1,  4, -1, -1, -1, -1, -1, -1, -1,    // 3010
+       -1, -1, -1, -1,  0, -1, -1, -1,  1, -1, -1, -1, -1, -1, -1, -1,    // 0110
+        0, -1, -1, -1,  1, -1, -1, -1,  2, -1, -1, -1, -1, -1, -1, -1,    // 1110
+        0,  1, -1, -1,  2, -1, -1, -1,  3, -1, -1, -1, -1, -1, -1, -1,    // 2110
+        0,  1,  2,  3,  4, -1, -1, -1,  5, -1, -1, -1, -1, -1, -1, -1,    // 3110
+       -1, -1, -1, -1,  0,  1, -1, -1,  2, -1, -1, -1, -1, -1, -1, -1,    // 0210
+        0, -1, -1, -1,  1,  2, -1, -1,  3, -1, -1, -1, -1, -1, -1, -1,    // 1210
+        0,  1, -1, -1,  2,  3, -1, -1,  4, -1, -1, -1, -1, -1, -1, -1,    // 2210
+        0,  1,  2,  3,  4,  5, -1, -1,  6, -1, -1, -1, -1, -1, -1, -1,    // 3210
+       -1, -1, -1, -1,  0,  1,  2,  3,  4, -1, -1, -1, -1, -1, -1, -1,    // 0310
+        0, -1, -1, -1,  1,  2,  3,  4,  5, -1, -1, -1, -1, -1, -1, -1,    // 1310
+        0,  1, -1, -1,  2,  3,  4,  5,  6, -1, -1, -1, -1, -1, -1, -1,    // 2310
+        0,  1,  2,  3,  4,  5,  6,  7,  8, -1, -1, -1, -1, -1, -1, -1,    // 3310
+       -1, -1, -1, -1, -1, -1, -1, -1,  0,  1, -1, -1, -1, -1, -1, -1,    // 0020
+        0, -1, -1, -1, -1, -1, -1, -1,  1,  2, -1, -1, -1, -1, -1, -1,    // 1020
+        0,  1, -1, -1, -1, -1, -1, -1,  2,  3, -1, -1, -1, -1, -1, -1,    // 2020
+        0,  1,  2,  3, -1, -1, -1, -1,  4,  5, -1, -1, -1, -1, -1, -1,    // 3020
+       -1, -1, -1, -1,  0, -1, -1, -1,  1,  2, -1, -1, -1, -1, -1, -1,    // 0120
+        0, -1, -1, -1,  1, -1, -1, -1,  2,  3, -1, -1, -1, -1, -1, -1,    // 1120
+        0,  1, -1, -1,  2, -1, -1, -1,  3,  4, -1, -1, -1, -1, -1, -1,    // 2120
+        0,  1,  2,  3,  4, -1, -1, -1,  5,  6, -1, -1, -1, -1, -1, -1,    // 3120
+       -1, -1, -1, -1,  0,  1, -1, -1,  2,  3, -1, -1, -1, -1, -1, -1,    // 0220
+        0, -1, -1, -1,  1,  2, -1, -1,  3,  4, -1, -1, -1, -1, -1, -1,    // 1220
+        0,  1, -1, -1,  2,  3, -1, -1,  4,  5, -1, -1, -1, -1, -1, -1,    // 2220
+        0,  1,  2,  3,  4,  5, -1, -1,  6,  7, -1, -1, -1, -1, -1, -1,    // 3220
+       -1, -1, -1, -1,  0,  1,  2,  3,  4,  5, -1, -1, -1, -1, -1, -1,    // 0320
+        0, -1, -1, -1,  1,  2,  3,  4,  5,  6, -1, -1, -1, -1, -1, -1,    // 1320
+        0,  1, -1, -1,  2,  3,  4,  5,  6,  7, -1, -1, -1, -1, -1, -1,    // 2320
+        0,  1,  2,  3,  4,  5,  6,  7,  8,  9, -1, -1, -1, -1, -1, -1,    // 3320
+       -1, -1, -1, -1, -1, -1, -1, -1,  0,  1,  2,  3, -1, -1, -1, -1,    // 0030
+        0, -1, -1, -1, -1, -1, -1, -1,  1,  2,  3,  4, -1, -1, -1, -1,    // 1030
+        0,  1, -1, -1, -1, -1, -1, -1,  2,  3,  4,  5, -1, -1, -1, -1,    // 2030
+        0,  1,  2,  3, -1, -1, -1, -1,  4,  5,  6,  7, -1, -1, -1, -1,    // 3030
+       -1, -1, -1, -1,  0, -1, -1, -1,  1,  2,  3,  4, -1, -1, -1, -1,    // 0130
+        0, -1, -1, -1,  1, -1, -1, -1,  2,  3,  4,  5, -1, -1, -1, -1,    // 1130
+        0,  1, -1, -1,  2, -1, -1, -1,  3,  4,  5,  6, -1, -1, -1, -1,    // 2130
+        0,  1,  2,  3,  4, -1, -1, -1,  5,  6,  7,  8, -1, -1, -1, -1,    // 3130
+       -1, -1, -1, -1,  0,  1, -1, -1,  2,  3,  4,  5, -1, -1, -1, -1,    // 0230
+        0, -1, -1, -1,  1,  2, -1, -1,  3,  4,  5,  6, -1, -1, -1, -1,    // 1230
+        0,  1, -1, -1,  2,  3, -1, -1,  4,  5,  6,  7, -1, -1, -1, -1,    // 2230
+        0,  1,  2,  3,  4,  5, -1, -1,  6,  7,  8,  9, -1, -1, -1, -1,    // 3230
+       -1, -1, -1, -1,  0,  1,  2,  3,  4,  5,  6,  7, -1, -1, -1, -1,    // 0330
+        0, -1, -1, -1,  1,  2,  3,  4,  5,  6,  7,  8, -1, -1, -1, -1,    // 1330
+        0,  1, -1, -1,  2,  3,  4,  5,  6,  7,  8,  9, -1, -1, -1, -1,    // 2330
+        0,  1,  2,  3,  4,  5,  6,  7,  8,  9, 10, 11, -1, -1, -1, -1,    // 3330
+       -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,  0, -1, -1, -1,    // 0001
+        0, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,  1, -1, -1, -1,    // 1001
+        0,  1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,  2, -1, -1, -1,    // 2001
+        0,  1,  2,  3, -1, -1, -1, -1, -1, -1, -1, -1,  4, -1, -1, -1,    // 3001
+       -1, -1, -1, -1,  0, -1, -1, -1, -1, -1, -1, -1,  1, -1, -1, -1,    // 0101
+        0, -1, -1, -1,  1, -1, -1, -1, -1, -1, -1, -1,  2, -1, -1, -1,    // 1101
+        0,  1, -1, -1,  2, -1, -1, -1, -1, -1, -1, -1,  3, -1, -1, -1,    // 2101
+        0,  1,  2,  3,  4, -1, -1, -1, -1, -1, -1, -1,  5, -1, -1, -1,    // 3101
+       -1, -1, -1, -1,  0,  1, -1, -1, -1, -1, -1, -1,  2, -1, -1, -1,    // 0201
+        0, -1, -1, -1,  1,  2, -1, -1, -1, -1, -1, -1,  3, -1, -1, -1,    // 1201
+        0,  1, -1, -1,  2,  3, -1, -1, -1, -1, -1, -1,  4, -1, -1, -1,    // 2201
+        0,  1,  2,  3,  4,  5, -1, -1, -1, -1, -1, -1,  6, -1, -1, -1,    // 3201
+       -1, -1, -1, -1,  0,  1,  2,  3, -1, -1, -1, -1,  4, -1, -1, -1,    // 0301
+        0, -1, -1, -1,  1,  2,  3,  4, -1, -1, -1, -1,  5, -1, -1, -1,    // 1301
+        0,  1, -1, -1,  2,  3,  4,  5, -1, -1, -1, -1,  6, -1, -1, -1,    // 2301
+        0,  1,  2,  3,  4,  5,  6,  7, -1, -1, -1, -1,  8, -1, -1, -1,    // 3301
+       -1, -1, -1, -1, -1, -1, -1, -1,  0, -1, -1, -1,  1, -1, -1, -1,    // 0011
+        0, -1, -1, -1, -1, -1, -1, -1,  1, -1, -1, -1,  2, -1, -1, -1,    // 1011
+        0,  1, -1, -1, -1, -1, -1, -1,  2, -1, -1, -1,  3, -1, -1, -1,    // 2011
+        0,  1,  2,  3, -1, -1, -1, -1,  4, -1, -1, -1,  5, -1, -1, -1,    // 3011
+       -1, -1, -1, -1,  0, -1, -1, -1,  1, -1, -1, -1,  2, -1, -1, -1,    // 0111
+        0, -1, -1, -1,  1, -1, -1, -1,  2, -1, -1, -1,  3, -1, -1, -1,    // 1111
+        0,  1, -1, -1,  2, -1, -1, -1,  3, -1, -1, -1,  4, -1, -1, -1,    // 2111
+        0,  1,  2,  3,  4, -1, -1, -1,  5, -1, -1, -1,  6, -1, -1, -1,    // 3111
+       -1, -1, -1, -1,  0,  1, -1, -1,  2, -1, -1, -1,  3, -1, -1, -1,    // 0211
+        0, -1, -1, -1,  1,  2, -1, -1,  3, -1, -1, -1,  4, -1, -1, -1,    // 1211
+        0,  1, -1, -1,  2,  3, -1, -1,  4, -1, -1, -1,  5, -1, -1, -1,    // 2211
+        0,  1,  2,  3,  4,  5, -1, -1,  6, -1, -1, -1,  7, -1, -1, -1,    // 3211
+       -1, -1, -1, -1,  0,  1,  2,  3,  4, -1, -1, -1,  5, -1, -1, -1,    // 0311
+        0, -1, -1, -1,  1,  2,  3,  4,  5, -1, -1, -1,  6, -1, -1, -1,    // 1311
+        0,  1, -1, -1,  2,  3,  4,  5,  6, -1, -1, -1,  7, -1, -1, -1,    // 2311
+        0,  1,  2,  3,  4,  5,  6,  7,  8, -1, -1, -1,  9, -1, -1, -1,    // 3311
+       -1, -1, -1, -1, -1, -1, -1, -1,  0,  1, -1, -1,  2, -1, -1, -1,    // 0021
+        0, -1, -1, -1, -1, -1, -1, -1,  1,  2, -1, -1,  3, -1, -1, -1,    // 1021
+        0,  1, -1, -1, -1, -1, -1, -1,  2,  3, -1, -1,  4, -1, -1, -1,    // 2021
+        0,  1,  2,  3, -1, -1, -1, -1,  4,  5, -1, -1,  6, -1, -1, -1,    // 3021
+       -1, -1, -1, -1,  0, -1, -1, -1,  1,  2, -1, -1,  3, -1, -1, -1,    // 0121
+        0, -1, -1, -1,  1, -1, -1, -1,  2,  3, -1, -1,  4, -1, -1, -1,    // 1121
+        0,  1, -1, -1,  2, -1, -1, -1,  3,  4, -1, -1,  5, -1, -1, -1,    // 2121
+        0,  1,  2,  3,  4, -1, -1, -1,  5,  6, -1, -1,  7, -1, -1, -1,    // 3121
+       -1, -1, -1, -1,  0,  1, -1, -1,  2,  3, -1, -1,  4, -1, -1, -1,    // 0221
+        0, -1, -1, -1,  1,  2, -1, -1,  3,  4, -1, -1,  5, -1, -1, -1,    // 1221
+        0,  1, -1, -1,  2,  3, -1, -1,  4,  5, -1, -1,  6, -1, -1, -1,    // 2221
+        0,  1,  2,  3,  4,  5, -1, -1,  6,  7, -1, -1,  8, -1, -1, -1,    // 3221
+       -1, -1, -1, -1,  0,  1,  2,  3,  4,  5, -1, -1,  6, -1, -1, -1,    // 0321
+        0, -1, -1, -1,  1,  2,  3,  4,  5,  6, -1, -1,  7, -1, -1, -1,    // 1321
+        0,  1, -1, -1,  2,  3,  4,  5,  6,  7, -1, -1,  8, -1, -1, -1,    // 2321
+        0,  1,  2,  3,  4,  5,  6,  7,  8,  9, -1, -1, 10, -1, -1, -1,    // 3321
+       -1, -1, -1, -1, -1, -1, -1, -1,  0,  1,  2,  3,  4, -1, -1, -1,    // 0031
+        0, -1, -1, -1, -1, -1, -1, -1,  1,  2,  3,  4,  5, -1, -1, -1,    // 1031
+        0,  1, -1, -1, -1, -1, -1, -1,  2,  3,  4,  5,  6, -1, -1, -1,    // 2031
+        0,  1,  2,  3, -1, -1, -1, -1,  4,  5,  6,  7,  8, -1, -1, -1,    // 3031
+       -1, -1, -1, -1,  0, -1, -1, -1,  1,  2,  3,  4,  5, -1, -1, -1,    // 0131
+        0, -1, -1, -1,  1, -1, -1, -1,  2,  3,  4,  5,  6, -1, -1, -1,    // 1131
+        0,  1, -1, -1,  2, -1, -1, -1,  3,  4,  5,  6,  7, -1, -1, -1,    // 2131
+        0,  1,  2,  3,  4, -1, -1, -1,  5,  6,  7,  8,  9, -1, -1, -1,    // 3131
+       -1, -1, -1, -1,  0,  1, -1, -1,  2,  3,  4,  5,  6, -1, -1, -1,    // 0231
+        0, -1, -1, -1,  1,  2, -1, -1,  3,  4,  5,  6,  7, -1, -1, -1,    // 1231
+        0,  1, -1, -1,  2,  3, -1, -1,  4,  5,  6,  7,  8, -1, -1, -1,    // 2231
+        0,  1,  2,  3,  4,  5, -1, -1,  6,  7,  8,  9, 10, -1, -1, -1,    // 3231
+       -1, -1, -1, -1,  0,  1,  2,  3,  4,  5,  6,  7,  8, -1, -1, -1,    // 0331
+        0, -1, -1, -1,  1,  2,  3,  4,  5,  6,  7,  8,  9, -1, -1, -1,    // 1331
+        0,  1, -1, -1,  2,  3,  4,  5,  6,  7,  8,  9, 10, -1, -1, -1,    // 2331
+        0,  1,  2,  3,  4,  5,  6,  7,  8,  9, 10, 11, 12, -1, -1, -1,    // 3331
+       -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,  0,  1, -1, -1,    // 0002
+        0, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,  1,  2, -1, -1,    // 1002
+        0,  1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,  2,  3, -1, -1,    // 2002
+        0,  1,  2,  3, -1, -1, -1, -1, -1, -1, -1, -1,  4,  5, -1, -1,    // 3002
+       -1, -1, -1, -1,  0, -1, -1, -1, -1, -1, -1, -1,  1,  2, -1, -1,    // 0102
+        0, -1, -1, -1,  1, -1, -1, -1, -1, -1, -1, -1,  2,  3, -1, -1,    // 1102
+        0,  1, -1, -1,  2, -1, -1, -1, -1, -1, -1, -1,  3,  4, -1, -1,    // 2102
+        0,  1,  2,  3,  4, -1, -1, -1, -1, -1, -1, -1,  5,  6, -1, -1,    // 3102
+       -1, -1, -1, -1,  0,  1, -1, -1, -1, -1, -1, -1,  2,  3, -1, -1,    // 0202
+        0, -1, -1, -1,  1,  2, -1, -1, -1, -1, -1, -1,  3,  4, -1, -1,    // 1202
+        0,  1, -1, -1,  2,  3, -1, -1, -1, -1, -1, -1,  4,  5, -1, -1,    // 2202
+        0,  1,  2,  3,  4,  5, -1, -1, -1, -1, -1, -1,  6,  7, -1, -1,    // 3202
+       -1, -1, -1, -1,  0,  1,  2,  3, -1, -1, -1, -1,  4,  5, -1, -1,    // 0302
+        0, -1, -1, -1,  1,  2,  3,  4, -1, -1, -1, -1,  5,  6, -1, -1,    // 1302
+        0,  1, -1, -1,  2,  3,  4,  5, -1, -1, -1, -1,  6,  7, -1, -1,    // 2302
+        0,  1,  2,  3,  4,  5,  6,  7, -1, -1, -1, -1,  8,  9, -1, -1,    // 3302
+       -1, -1, -1, -1, -1, -1, -1, -1,  0, -1, -1, -1,  1,  2, -1, -1,    // 0012
+        0, -1, -1, -1, -1, -1, -1, -1,  1, -1, -1, -1,  2,  3, -1, -1,    // 1012
+        0,  1, -1, -1, -1, -1, -1, -1,  2, -1, -1, -1,  3,  4, -1, -1,    // 2012
+        0,  1,  2,  3, -1, -1, -1, -1,  4, -1, -1, -1,  5,  6, -1, -1,    // 3012
+       -1, -1, -1, -1,  0, -1, -1, -1,  1, -1, -1, -1,  2,  3, -1, -1,    // 0112
+        0, -1, -1, -1,  1, -1, -1, -1,  2, -1, -1, -1,  3,  4, -1, -1,    // 1112
+        0,  1, -1, -1,  2, -1, -1, -1,  3, -1, -1, -1,  4,  5, -1, -1,    // 2112
+        0,  1,  2,  3,  4, -1, -1, -1,  5, -1, -1, -1,  6,  7, -1, -1,    // 3112
+       -1, -1, -1, -1,  0,  1, -1, -1,  2, -1, -1, -1,  3,  4, -1, -1,    // 0212
+        0, -1, -1, -1,  1,  2, -1, -1,  3, -1, -1, -1,  4,  5, -1, -1,    // 1212
+        0,  1, -1, -1,  2,  3, -1, -1,  4, -1, -1, -1,  5,  6, -1, -1,    // 2212
+        0,  1,  2,  3,  4,  5, -1, -1,  6, -1, -1, -1,  7,  8, -1, -1,    // 3212
+       -1, -1, -1, -1,  0,  1,  2,  3,  4, -1, -1, -1,  5,  6, -1, -1,    // 0312
+        0, -1, -1, -1,  1,  2,  3,  4,  5, -1, -1, -1,  6,  7, -1, -1,    // 1312
+        0,  1, -1, -1,  2,  3,  4,  5,  6, -1, -1, -1,  7,  8, -1, -1,    // 2312
+        0,  1,  2,  3,  4,  5,  6,  7,  8, -1, -1, -1,  9, 10, -1, -1,    // 3312
+       -1, -1, -1, -1, -1, -1, -1, -1,  0,  1, -1, -1,  2,  3, -1, -1,    // 0022
+        0, -1, -1, -1, -1, -1, -1, -1,  1,  2, -1, -1,  3,  4, -1, -1,    // 1022
+        0,  1, -1, -1, -1, -1, -1, -1,  2,  3, -1, -1,  4,  5, -1, -1,    // 2022
+        0,  1,  2,  3, -1, -1, -1, -1,  4,  5, -1, -1,  6,  7, -1, -1,    // 3022
+       -1, -1, -1, -1,  0, -1, -1, -1,  1,  2, -1, -1,  3,  4, -1, -1,    // 0122
+        0, -1, -1, -1,  1, -1, -1, -1,  2,  3, -1, -1,  4,  5, -1, -1,    // 1122
+        0,  1, -1, -1,  2, -1, -1, -1,  3,  4, -1, -1,  5,  6, -1, -1,    // 2122
+        0,  1,  2,  3,  4, -1, -1, -1,  5,  6, -1, -1,  7,  8, -1, -1,    // 3122
+       -1, -1, -1, -1,  0,  1, -1, -1,  2,  3, -1, -1,  4,  5, -1, -1,    // 0222
+        0, -1, -1, -1,  1,  2, -1, -1,  3,  4, -1, -1,  5,  6, -1, -1,    // 1222
+        0,  1, -1, -1,  2,  3, -1, -1,  4,  5, -1, -1,  6,  7, -1, -1,    // 2222
+        0,  1,  2,  3,  4,  5, -1, -1,  6,  7, -1, -1,  8,  9, -1, -1,    // 3222
+       -1, -1, -1, -1,  0,  1,  2,  3,  4,  5, -1, -1,  6,  7, -1, -1,    // 0322
+        0, -1, -1, -1,  1,  2,  3,  4,  5,  6, -1, -1,  7,  8, -1, -1,    // 1322
+        0,  1, -1, -1,  2,  3,  4,  5,  6,  7, -1, -1,  8,  9, -1, -1,    // 2322
+        0,  1,  2,  3,  4,  5,  6,  7,  8,  9, -1, -1, 10, 11, -1, -1,    // 3322
+       -1, -1, -1, -1, -1, -1, -1, -1,  0,  1,  2,  3,  4,  5, -1, -1,    // 0032
+        0, -1, -1, -1, -1, -1, -1, -1,  1,  2,  3,  4,  5,  6, -1, -1,    // 1032
+        0,  1, -1, -1, -1, -1, -1, -1,  2,  3,  4,  5,  6,  7, -1, -1,    // 2032
+        0,  1,  2,  3, -1, -1, -1, -1,  4,  5,  6,  7,  8,  9, -1, -1,    // 3032
+       -1, -1, -1, -1,  0, -1, -1, -1,  1,  2,  3,  4,  5,  6, -1, -1,    // 0132
+        0, -1, -1, -1,  1, -1, -1, -1,  2,  3,  4,  5,  6,  7, -1, -1,    // 1132
+        0,  1, -1, -1,  2, -1, -1, -1,  3,  4,  5,  6,  7,  8, -1, -1,    // 2132
+        0,  1,  2,  3,  4, -1, -1, -1,  5,  6,  7,  8,  9, 10, -1, -1,    // 3132
+       -1, -1, -1, -1,  0,  1, -1, -1,  2,  3,  4,  5,  6,  7, -1, -1,    // 0232
+        0, -1, -1, -1,  1,  2, -1, -1,  3,  4,  5,  6,  7,  8, -1, -1,    // 1232
+        0,  1, -1, -1,  2,  3, -1, -1,  4,  5,  6,  7,  8,  9, -1, -1,    // 2232
+        0,  1,  2,  3,  4,  5, -1, -1,  6,  7,  8,  9, 10, 11, -1, -1,    // 3232
+       -1, -1, -1, -1,  0,  1,  2,  3,  4,  5,  6,  7,  8,  9, -1, -1,    // 0332
+        0, -1, -1, -1,  1,  2,  3,  4,  5,  6,  7,  8,  9, 10, -1, -1,    // 1332
+        0,  1, -1, -1,  2,  3,  4,  5,  6,  7,  8,  9, 10, 11, -1, -1,    // 2332
+        0,  1,  2,  3,  4,  5,  6,  7,  8,  9, 10, 11, 12, 13, -1, -1,    // 3332
+       -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,  0,  1,  2,  3,    // 0003
+        0, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,  1,  2,  3,  4,    // 1003
+        0,  1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,  2,  3,  4,  5,    // 2003
+        0,  1,  2,  3, -1, -1, -1, -1, -1, -1, -1, -1,  4,  5,  6,  7,    // 3003
+       -1, -1, -1, -1,  0, -1, -1, -1, -1, -1, -1, -1,  1,  2,  3,  4,    // 0103
+        0, -1, -1, -1,  1, -1, -1, -1, -1, -1, -1, -1,  2,  3,  4,  5,    // 1103
+        0,  1, -1, -1,  2, -1, -1, -1, -1, -1, -1, -1,  3,  4,  5,  6,    // 2103
+        0,  1,  2,  3,  4, -1, -1, -1, -1, -1, -1, -1,  5,  6,  7,  8,    // 3103
+       -1, -1, -1, -1,  0,  1, -1, -1, -1, -1, -1, -1,  2,  3,  4,  5,    // 0203
+        0, -1, -1, -1,  1,  2, -1, -1, -1, -1, -1, -1,  3,  4,  5,  6,    // 1203
+        0,  1, -1, -1,  2,  3, -1, -1, -1, -1, -1, -1,  4,  5,  6,  7,    // 2203
+        0,  1,  2,  3,  4,  5, -1, -1, -1, -1, -1, -1,  6,  7,  8,  9,    // 3203
+       -1, -1, -1, -1,  0,  1,  2,  3, -1, -1, -1, -1,  4,  5,  6,  7,    // 0303
+        0, -1, -1, -1,  1,  2,  3,  4, -1, -1, -1, -1,  5,  6,  7,  8,    // 1303
+        0,  1, -1, -1,  2,  3,  4,  5, -1, -1, -1, -1,  6,  7,  8,  9,    // 2303
+        0,  1,  2,  3,  4,  5,  6,  7, -1, -1, -1, -1,  8,  9, 10, 11,    // 3303
+       -1, -1, -1, -1, -1, -1, -1, -1,  0, -1, -1, -1,  1,  2,  3,  4,    // 0013
+        0, -1, -1, -1, -1, -1, -1, -1,  1, -1, -1, -1,  2,  3,  4,  5,    // 1013
+        0,  1, -1, -1, -1, -1, -1, -1,  2, -1, -1, -1,  3,  4,  5,  6,    // 2013
+        0,  1,  2,  3, -1, -1, -1, -1,  4, -1, -1, -1,  5,  6,  7,  8,    // 3013
+       -1, -1, -1, -1,  0, -1, -1, -1,  1, -1, -1, -1,  2,  3,  4,  5,    // 0113
+        0, -1, -1, -1,  1, -1, -1, -1,  2, -1, -1, -1,  3,  4,  5,  6,    // 1113
+        0,  1, -1, -1,  2, -1, -1, -1,  3, -1, -1, -1,  4,  5,  6,  7,    // 2113
+        0,  1,  2,  3,  4, -1, -1, -1,  5, -1, -1, -1,  6,  7,  8,  9,    // 3113
+       -1, -1, -1, -1,  0,  1, -1, -1,  2, -1, -1, -1,  3,  4,  5,  6,    // 0213
+        0, -1, -1, -1,  1,  2, -1, -1,  3, -1, -1, -1,  4,  5,  6,  7,    // 1213
+        0,  1, -1, -1,  2,  3, -1, -1,  4, -1, -1, -1,  5,  6,  7,  8,    // 2213
+        0,  1,  2,  3,  4,  5, -1, -1,  6, -1, -1, -1,  7,  8,  9, 10,    // 3213
+       -1, -1, -1, -1,  0,  1,  2,  3,  4, -1, -1, -1,  5,  6,  7,  8,    // 0313
+        0, -1, -1, -1,  1,  2,  3,  4,  5, -1, -1, -1,  6,  7,  8,  9,    // 1313
+        0,  1, -1, -1,  2,  3,  4,  5,  6, -1, -1, -1,  7,  8,  9, 10,    // 2313
+        0,  1,  2,  3,  4,  5,  6,  7,  8, -1, -1, -1,  9, 10, 11, 12,    // 3313
+       -1, -1, -1, -1, -1, -1, -1, -1,  0,  1, -1, -1,  2,  3,  4,  5,    // 0023
+        0, -1, -1, -1, -1, -1, -1, -1,  1,  2, -1, -1,  3,  4,  5,  6,    // 1023
+        0,  1, -1, -1, -1, -1, -1, -1,  2,  3, -1, -1,  4,  5,  6,  7,    // 2023
+        0,  1,  2,  3, -1, -1, -1, -1,  4,  5, -1, -1,  6,  7,  8,  9,    // 3023
+       -1, -1, -1, -1,  0, -1, -1, -1,  1,  2, -1, -1,  3,  4,  5,  6,    // 0123
+        0, -1, -1, -1,  1, -1, -1, -1,  2,  3, -1, -1,  4,  5,  6,  7,    // 1123
+        0,  1, -1, -1,  2, -1, -1, -1,  3,  4, -1, -1,  5,  6,  7,  8,    // 2123
+        0,  1,  2,  3,  4, -1, -1, -1,  5,  6, -1, -1,  7,  8,  9, 10,    // 3123
+       -1, -1, -1, -1,  0,  1, -1, -1,  2,  3, -1, -1,  4,  5,  6,  7,    // 0223
+        0, -1, -1, -1,  1,  2, -1, -1,  3,  4, -1, -1,  5,  6,  7,  8,    // 1223
+        0,  1, -1, -1,  2,  3, -1, -1,  4,  5, -1, -1,  6,  7,  8,  9,    // 2223
+        0,  1,  2,  3,  4,  5, -1, -1,  6,  7, -1, -1,  8,  9, 10, 11,    // 3223
+       -1, -1, -1, -1,  0,  1,  2,  3,  4,  5, -1, -1,  6,  7,  8,  9,    // 0323
+        0, -1, -1, -1,  1,  2,  3,  4,  5,  6, -1, -1,  7,  8,  9, 10,    // 1323
+        0,  1, -1, -1,  2,  3,  4,  5,  6,  7, -1, -1,  8,  9, 10, 11,    // 2323
+        0,  1,  2,  3,  4,  5,  6,  7,  8,  9, -1, -1, 10, 11, 12, 13,    // 3323
+       -1, -1, -1, -1, -1, -1, -1, -1,  0,  1,  2,  3,  4,  5,  6,  7,    // 0033
+        0, -1, -1, -1, -1, -1, -1, -1,  1,  2,  3,  4,  5,  6,  7,  8,    // 1033
+        0,  1, -1, -1, -1, -1, -1, -1,  2,  3,  4,  5,  6,  7,  8,  9,    // 2033
+        0,  1,  2,  3, -1, -1, -1, -1,  4,  5,  6,  7,  8,  9, 10, 11,    // 3033
+       -1, -1, -1, -1,  0, -1, -1, -1,  1,  2,  3,  4,  5,  6,  7,  8,    // 0133
+        0, -1, -1, -1,  1, -1, -1, -1,  2,  3,  4,  5,  6,  7,  8,  9,    // 1133
+        0,  1, -1, -1,  2, -1, -1, -1,  3,  4,  5,  6,  7,  8,  9, 10,    // 2133
+        0,  1,  2,  3,  4, -1, -1, -1,  5,  6,  7,  8,  9, 10, 11, 12,    // 3133
+       -1, -1, -1, -1,  0,  1, -1, -1,  2,  3,  4,  5,  6,  7,  8,  9,    // 0233
+        0, -1, -1, -1,  1,  2, -1, -1,  3,  4,  5,  6,  7,  8,  9, 10,    // 1233
+        0,  1, -1, -1,  2,  3, -1, -1,  4,  5,  6,  7,  8,  9, 10, 11,    // 2233
+        0,  1,  2,  3,  4,  5, -1, -1,  6,  7,  8,  9, 10, 11, 12, 13,    // 3233
+       -1, -1, -1, -1,  0,  1,  2,  3,  4,  5,  6,  7,  8,  9, 10, 11,    // 0333
+        0, -1, -1, -1,  1,  2,  3,  4,  5,  6,  7,  8,  9, 10, 11, 12,    // 1333
+        0,  1, -1, -1,  2,  3,  4,  5,  6,  7,  8,  9, 10, 11, 12, 13,    // 2333
+        0,  1,  2,  3,  4,  5,  6,  7,  8,  9, 10, 11, 12, 13, 14, 15     // 3333
+    };
 }
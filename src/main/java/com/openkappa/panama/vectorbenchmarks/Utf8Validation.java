@@ -0,0 +1,277 @@
+package com.openkappa.panama.vectorbenchmarks;
+
+import jdk.incubator.vector.ByteVector;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.openkappa.panama.vectorbenchmarks.Util.B256;
+import static jdk.incubator.vector.VectorOperators.LSHR;
+import static jdk.incubator.vector.VectorOperators.NE;
+import static jdk.incubator.vector.VectorOperators.UNSIGNED_GE;
+import static jdk.incubator.vector.VectorOperators.UNSIGNED_GT;
+import static jdk.incubator.vector.VectorOperators.XOR;
+
+/**
+ * UTF-8 validation after Keiser and Lemire's lookup algorithm: the high and low nibbles of each
+ * byte's predecessor and the high nibble of the byte itself each select a set of possible errors
+ * from a 16 entry table, and a sequence is invalid where all three agree. Blocks without any high
+ * bits are skipped after checking the previous block didn't end in the middle of a sequence.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsPrepend = {"--add-modules=jdk.incubator.vector"})
+public class Utf8Validation {
+
+  public static void main(String... args) {
+    SplittableRandom random = new SplittableRandom(0);
+    CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+    for (String text : new String[] {"ascii", "mixed", "cjk"}) {
+      for (int size : new int[] {0, 1, 31, 32, 33, 100, 1000, 10_000}) {
+        byte[] valid = newText(random, text, size);
+        if (!validate(valid) || !scalarValidate(valid) || !jdkValidate(decoder, valid)) {
+          throw new IllegalStateException("rejected valid " + text + " text of " + size + " bytes");
+        }
+        for (int trial = 0; trial < 1000 && size > 0; ++trial) {
+          byte[] corrupted = valid.clone();
+          for (int i = random.nextInt(1, 4); i > 0; --i) {
+            corrupted[random.nextInt(size)] = (byte) random.nextInt();
+          }
+          boolean expected = jdkValidate(decoder, corrupted);
+          if (validate(corrupted) != expected || scalarValidate(corrupted) != expected) {
+            throw new IllegalStateException("disagreed with the JDK about " + Arrays.toString(corrupted));
+          }
+        }
+      }
+    }
+    System.out.println("ok");
+  }
+
+  // the errors each nibble can indicate
+  private static final byte TOO_SHORT = 1 << 0;
+  private static final byte TOO_LONG = 1 << 1;
+  private static final byte OVERLONG_3 = 1 << 2;
+  private static final byte SURROGATE = 1 << 4;
+  private static final byte OVERLONG_2 = 1 << 5;
+  private static final byte TWO_CONTINUATIONS = (byte) (1 << 7);
+  private static final byte TOO_LARGE = 1 << 3;
+  private static final byte TOO_LARGE_1000 = 1 << 6;
+  private static final byte OVERLONG_4 = 1 << 6;
+  private static final byte CARRY = TOO_SHORT | TOO_LONG | TWO_CONTINUATIONS;
+
+  // indexed by the high nibble of the previous byte, only the first 16 lanes are used
+  private static final byte[] PREVIOUS_HIGH = Arrays.copyOf(new byte[] {
+          // ASCII
+          TOO_LONG, TOO_LONG, TOO_LONG, TOO_LONG, TOO_LONG, TOO_LONG, TOO_LONG, TOO_LONG,
+          // continuation
+          TWO_CONTINUATIONS, TWO_CONTINUATIONS, TWO_CONTINUATIONS, TWO_CONTINUATIONS,
+          // two byte leads
+          TOO_SHORT | OVERLONG_2,
+          TOO_SHORT,
+          // three byte lead
+          TOO_SHORT | OVERLONG_3 | SURROGATE,
+          // four byte lead
+          TOO_SHORT | TOO_LARGE | TOO_LARGE_1000 | OVERLONG_4
+  }, 32);
+
+  // indexed by the low nibble of the previous byte
+  private static final byte[] PREVIOUS_LOW = Arrays.copyOf(new byte[] {
+          CARRY | OVERLONG_3 | OVERLONG_2 | OVERLONG_4,
+          CARRY | OVERLONG_2,
+          CARRY,
+          CARRY,
+          CARRY | TOO_LARGE,
+          CARRY | TOO_LARGE | TOO_LARGE_1000,
+          CARRY | TOO_LARGE | TOO_LARGE_1000,
+          CARRY | TOO_LARGE | TOO_LARGE_1000,
+          CARRY | TOO_LARGE | TOO_LARGE_1000,
+          CARRY | TOO_LARGE | TOO_LARGE_1000,
+          CARRY | TOO_LARGE | TOO_LARGE_1000,
+          CARRY | TOO_LARGE | TOO_LARGE_1000,
+          CARRY | TOO_LARGE | TOO_LARGE_1000,
+          CARRY | TOO_LARGE | TOO_LARGE_1000 | SURROGATE,
+          CARRY | TOO_LARGE | TOO_LARGE_1000,
+          CARRY | TOO_LARGE | TOO_LARGE_1000
+  }, 32);
+
+  // indexed by the high nibble of the current byte
+  private static final byte[] CURRENT_HIGH = Arrays.copyOf(new byte[] {
+          // ASCII
+          TOO_SHORT, TOO_SHORT, TOO_SHORT, TOO_SHORT, TOO_SHORT, TOO_SHORT, TOO_SHORT, TOO_SHORT,
+          // continuation 1000____
+          (byte) (TOO_LONG | OVERLONG_2 | TWO_CONTINUATIONS | OVERLONG_3 | TOO_LARGE_1000 | OVERLONG_4),
+          // continuation 1001____
+          (byte) (TOO_LONG | OVERLONG_2 | TWO_CONTINUATIONS | OVERLONG_3 | TOO_LARGE),
+          // continuation 101_____
+          (byte) (TOO_LONG | OVERLONG_2 | TWO_CONTINUATIONS | SURROGATE | TOO_LARGE),
+          (byte) (TOO_LONG | OVERLONG_2 | TWO_CONTINUATIONS | SURROGATE | TOO_LARGE),
+          // leads
+          TOO_SHORT, TOO_SHORT, TOO_SHORT, TOO_SHORT
+  }, 32);
+
+  // a block is incomplete if it ends with a lead byte whose sequence isn't finished
+  private static final byte[] MAX_COMPLETE = new byte[32];
+
+  static {
+    Arrays.fill(MAX_COMPLETE, (byte) 0xFF);
+    MAX_COMPLETE[29] = (byte) (0b11110000 - 1);
+    MAX_COMPLETE[30] = (byte) (0b11100000 - 1);
+    MAX_COMPLETE[31] = (byte) (0b11000000 - 1);
+  }
+
+  @Param({"ascii", "mixed", "cjk"})
+  String text;
+
+  @Param({"65536", "1048576"})
+  int size;
+
+  byte[] data;
+  CharsetDecoder decoder;
+
+  @Setup(Level.Trial)
+  public void init() {
+    data = newText(new SplittableRandom(0), text, size);
+    decoder = StandardCharsets.UTF_8.newDecoder();
+  }
+
+  @Benchmark
+  public boolean vector() {
+    return validate(data);
+  }
+
+  @Benchmark
+  public boolean scalar() {
+    return scalarValidate(data);
+  }
+
+  @Benchmark
+  public boolean jdk() {
+    return jdkValidate(decoder, data);
+  }
+
+  @Benchmark
+  public byte[] copy() {
+    return data.clone();
+  }
+
+  static boolean validate(byte[] data) {
+    var previousHigh = ByteVector.fromArray(B256, PREVIOUS_HIGH, 0);
+    var previousLow = ByteVector.fromArray(B256, PREVIOUS_LOW, 0);
+    var currentHigh = ByteVector.fromArray(B256, CURRENT_HIGH, 0);
+    var maxComplete = ByteVector.fromArray(B256, MAX_COMPLETE, 0);
+    var zero = ByteVector.zero(B256);
+    var previous = zero;
+    var incomplete = zero;
+    var error = zero;
+    int offset = 0;
+    byte[] block = data;
+    int blockOffset = 0;
+    // the last block is padded with ASCII zeros, and is always present to catch sequences cut short
+    while (offset <= data.length) {
+      if (offset + B256.length() > data.length) {
+        block = Arrays.copyOfRange(data, offset, offset + B256.length());
+        blockOffset = 0;
+      }
+      var input = ByteVector.fromArray(B256, block, blockOffset);
+      if (!input.lt((byte) 0).anyTrue()) {
+        error = error.or(incomplete);
+      } else {
+        var previous1 = previous.slice(B256.length() - 1, input);
+        var errors = previousHigh.rearrange(previous1.lanewise(LSHR, 4).toShuffle())
+                .and(previousLow.rearrange(previous1.and((byte) 0x0F).toShuffle()))
+                .and(currentHigh.rearrange(input.lanewise(LSHR, 4).toShuffle()));
+        // the third and fourth bytes of a sequence are where two continuations in a row are expected
+        var mustBeContinuation = previous.slice(B256.length() - 2, input).compare(UNSIGNED_GE, (byte) 0b11100000)
+                .or(previous.slice(B256.length() - 3, input).compare(UNSIGNED_GE, (byte) 0b11110000));
+        error = error.or(errors.lanewise(XOR, zero.blend(TWO_CONTINUATIONS, mustBeContinuation)));
+        incomplete = zero.blend((byte) -1, input.compare(UNSIGNED_GT, maxComplete));
+      }
+      previous = input;
+      offset += B256.length();
+      blockOffset += B256.length();
+    }
+    return !error.compare(NE, 0).anyTrue();
+  }
+
+  static boolean scalarValidate(byte[] data) {
+    int i = 0;
+    while (i < data.length) {
+      int b = data[i] & 0xFF;
+      if (b < 0x80) {
+        ++i;
+      } else if (b < 0xC2) {
+        return false;
+      } else if (b < 0xE0) {
+        if (i + 1 >= data.length || !isContinuation(data[i + 1])) {
+          return false;
+        }
+        i += 2;
+      } else if (b < 0xF0) {
+        if (i + 2 >= data.length || !isContinuation(data[i + 1]) || !isContinuation(data[i + 2])) {
+          return false;
+        }
+        int next = data[i + 1] & 0xFF;
+        if ((b == 0xE0 && next < 0xA0) || (b == 0xED && next >= 0xA0)) {
+          return false;
+        }
+        i += 3;
+      } else if (b < 0xF5) {
+        if (i + 3 >= data.length || !isContinuation(data[i + 1])
+                || !isContinuation(data[i + 2]) || !isContinuation(data[i + 3])) {
+          return false;
+        }
+        int next = data[i + 1] & 0xFF;
+        if ((b == 0xF0 && next < 0x90) || (b == 0xF4 && next >= 0x90)) {
+          return false;
+        }
+        i += 4;
+      } else {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static boolean jdkValidate(CharsetDecoder decoder, byte[] data) {
+    try {
+      decoder.reset().decode(ByteBuffer.wrap(data));
+      return true;
+    } catch (CharacterCodingException e) {
+      return false;
+    }
+  }
+
+  private static boolean isContinuation(byte b) {
+    return (b & 0xC0) == 0x80;
+  }
+
+  private static byte[] newText(SplittableRandom random, String text, int size) {
+    StringBuilder sb = new StringBuilder();
+    int length = 0;
+    while (length < size) {
+      int codePoint;
+      int roll = random.nextInt(100);
+      if ("ascii".equals(text) || ("mixed".equals(text) && roll < 80) || ("cjk".equals(text) && roll < 10)) {
+        codePoint = random.nextInt(0x20, 0x7F);
+      } else if ("mixed".equals(text) && roll < 92) {
+        codePoint = random.nextInt(0xA0, 0x800);
+      } else if (roll < 98) {
+        codePoint = random.nextInt(0x4E00, 0xA000);
+      } else {
+        codePoint = random.nextInt(0x1F300, 0x1F700);
+      }
+      length += new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8).length;
+      if (length <= size) {
+        sb.appendCodePoint(codePoint);
+      }
+    }
+    return Arrays.copyOf(sb.toString().getBytes(StandardCharsets.UTF_8), size);
+  }
+}
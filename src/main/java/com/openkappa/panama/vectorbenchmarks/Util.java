@@ -160,6 +160,8 @@ public class Util {
 
   public static final VectorSpecies<Short> S128 = VectorSpecies.of(short.class, S_128_BIT);
 
+  public static final VectorSpecies<Short> S256 = VectorSpecies.of(short.class, S_256_BIT);
+
   public static final VectorSpecies<Long> L128 = VectorSpecies.of(long.class, S_128_BIT);
 
   public static ByteBuffer allocateDirectAligned(final int capacity, final int alignment) {